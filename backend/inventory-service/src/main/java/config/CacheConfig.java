@@ -0,0 +1,14 @@
+package com.velixa.inventory.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables the in-process warehouse summary cache. Its short TTL comes from
+ * {@code spring.cache.caffeine.spec} and bounds staleness for writes that
+ * do not evict it, such as hot counter flushes and ledger folds.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+}
@@ -1,17 +1,27 @@
 package com.velixa.inventory.controller;
 
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.velixa.inventory.dto.AvailabilityRequestItem;
+import com.velixa.inventory.dto.AvailabilityResult;
+import com.velixa.inventory.dto.InventoryBulkItem;
+import com.velixa.inventory.dto.InventoryBulkResult;
+import com.velixa.inventory.dto.WarehouseStockSummary;
 import com.velixa.inventory.model.Inventory;
 import com.velixa.inventory.service.InventoryService;
 
@@ -37,6 +47,21 @@ public class InventoryController {
         return new ResponseEntity<>(inventoryService.updateInventory(productId, quantity), HttpStatus.OK);
     }
     
+    @PatchMapping("/{productId}/adjust")
+    public ResponseEntity<Inventory> adjustInventory(@PathVariable String productId, @RequestParam int delta) {
+        return inventoryService.adjustInventory(productId, delta)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @PutMapping("/{productId}/low-stock-threshold")
+    public ResponseEntity<Inventory> updateLowStockThreshold(@PathVariable String productId,
+            @RequestParam(required = false) Integer threshold) {
+        return inventoryService.updateLowStockThreshold(productId, threshold)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
     @PostMapping
     public ResponseEntity<Inventory> createInventory(@RequestBody Inventory inventory) {
         return new ResponseEntity<>(inventoryService.createInventory(inventory), HttpStatus.CREATED);
@@ -56,6 +81,21 @@ public class InventoryController {
         return ResponseEntity.ok(available);
     }
     
+    @PostMapping("/availability")
+    public ResponseEntity<Map<String, AvailabilityResult>> checkAvailability(@RequestBody List<AvailabilityRequestItem> items) {
+        return ResponseEntity.ok(inventoryService.checkAvailability(items));
+    }
+    
+    @GetMapping("/warehouses/summary")
+    public ResponseEntity<List<WarehouseStockSummary>> getWarehouseSummaries() {
+        return ResponseEntity.ok(inventoryService.getWarehouseSummaries());
+    }
+    
+    @PostMapping("/bulk")
+    public ResponseEntity<InventoryBulkResult> bulkUpsert(@RequestBody List<InventoryBulkItem> items) {
+        return ResponseEntity.ok(inventoryService.bulkUpsert(items));
+    }
+    
     @PutMapping("/{productId}")
     public ResponseEntity<Inventory> replaceInventory(@PathVariable String productId, @RequestBody Inventory inventory) {
         // Ensure the path variable and body ID match
@@ -0,0 +1,31 @@
+package com.velixa.inventory.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.velixa.inventory.ledger.InventoryLedger;
+import com.velixa.inventory.model.LedgerEntry;
+
+@RestController
+@RequestMapping("/api/inventory")
+@ConditionalOnProperty(name = "inventory.ledger.enabled", havingValue = "true")
+public class InventoryLedgerController {
+    
+    @Autowired
+    private InventoryLedger inventoryLedger;
+    
+    @GetMapping("/{productId}/ledger")
+    public ResponseEntity<List<LedgerEntry>> getLedger(@PathVariable String productId,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(inventoryLedger.history(productId, before, limit));
+    }
+}
@@ -0,0 +1,26 @@
+package com.velixa.inventory.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.velixa.inventory.stream.LowStockEventStream;
+
+@RestController
+@RequestMapping("/api/inventory/low-stock")
+@ConditionalOnProperty(name = "inventory.low-stock-stream.enabled", havingValue = "true")
+public class LowStockStreamController {
+    
+    @Autowired
+    private LowStockEventStream lowStockEventStream;
+    
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return lowStockEventStream.subscribe(lastEventId);
+    }
+}
@@ -0,0 +1,51 @@
+package com.velixa.inventory.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.velixa.inventory.dto.ReservationRequest;
+import com.velixa.inventory.model.Reservation;
+import com.velixa.inventory.service.ReservationService;
+
+@RestController
+@RequestMapping("/api/inventory/reservations")
+public class ReservationController {
+    
+    @Autowired
+    private ReservationService reservationService;
+    
+    @PostMapping
+    public ResponseEntity<Reservation> reserve(@RequestBody ReservationRequest request) {
+        return reservationService.reserve(request.getProductId(), request.getQuantity(), request.getTtlSeconds())
+                .map(reservation -> new ResponseEntity<>(reservation, HttpStatus.CREATED))
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @GetMapping("/{reservationId}")
+    public ResponseEntity<Reservation> getReservation(@PathVariable String reservationId) {
+        return reservationService.getReservation(reservationId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @PostMapping("/{reservationId}/confirm")
+    public ResponseEntity<Reservation> confirm(@PathVariable String reservationId) {
+        return reservationService.confirm(reservationId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @PostMapping("/{reservationId}/release")
+    public ResponseEntity<Reservation> release(@PathVariable String reservationId) {
+        return reservationService.release(reservationId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,33 @@
+package com.velixa.inventory.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.velixa.inventory.dto.IngestionStatus;
+import com.velixa.inventory.ingest.StockFileIngestion;
+
+@RestController
+@RequestMapping("/api/inventory/ingestions")
+public class StockIngestionController {
+    
+    @Autowired
+    private StockFileIngestion stockFileIngestion;
+    
+    @PostMapping
+    public ResponseEntity<IngestionStatus> startIngestion(@RequestParam String file) {
+        return new ResponseEntity<>(stockFileIngestion.start(file), HttpStatus.ACCEPTED);
+    }
+    
+    @GetMapping("/current")
+    public ResponseEntity<IngestionStatus> getIngestion() {
+        return stockFileIngestion.status()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
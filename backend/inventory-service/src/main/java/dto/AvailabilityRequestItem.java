@@ -0,0 +1,13 @@
+package com.velixa.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityRequestItem {
+    private String productId;
+    private int quantity;
+}
@@ -0,0 +1,14 @@
+package com.velixa.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityResult {
+    private int requested;
+    private int available;
+    private boolean inStock;
+}
@@ -0,0 +1,29 @@
+package com.velixa.inventory.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionStatus {
+    private String file;
+    private String state; // "RUNNING", "COMPLETED", "FAILED"
+    private Instant startedAt;
+    private Instant finishedAt;
+    private long totalBytes;
+    private long bytesRead;
+    private long rowsParsed;
+    private long rowsWritten;
+    private long rowsRejected;
+    private long matched;
+    private long modified;
+    private long upserted;
+    private double rowsPerSecond;
+    private List<String> errors;
+    private String failure;
+}
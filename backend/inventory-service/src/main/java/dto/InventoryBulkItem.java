@@ -0,0 +1,14 @@
+package com.velixa.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryBulkItem {
+    private String productId;
+    private int quantity;
+    private String warehouseLocation; // optional, left unchanged when null
+}
@@ -0,0 +1,15 @@
+package com.velixa.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryBulkResult {
+    private int received;
+    private int matched;
+    private int modified;
+    private int upserted;
+}
@@ -0,0 +1,17 @@
+package com.velixa.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LowStockEvent {
+    private String productId;
+    private String status; // "LOW_STOCK" or "OUT_OF_STOCK"
+    private int quantity;
+    private Integer lowStockThreshold;
+    private String warehouseLocation;
+    private String lastUpdated;
+}
@@ -0,0 +1,14 @@
+package com.velixa.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationRequest {
+    private String productId;
+    private int quantity;
+    private Long ttlSeconds; // optional, defaults to inventory.reservations.default-ttl-seconds
+}
@@ -0,0 +1,17 @@
+package com.velixa.inventory.dto;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WarehouseStockSummary {
+    private String warehouseLocation;
+    private long totalQuantity;
+    private long skuCount;
+    private Map<String, Long> statusCounts; // SKUs per status
+}
@@ -0,0 +1,50 @@
+package com.velixa.inventory.exception;
+
+import java.time.LocalDateTime;
+
+public class ErrorResponse {
+    private String status;
+    private int code;
+    private String message;
+    private LocalDateTime timestamp;
+
+    public ErrorResponse(String status, int code, String message, LocalDateTime timestamp) {
+        this.status = status;
+        this.code = code;
+        this.message = message;
+        this.timestamp = timestamp;
+    }
+
+    // Getters and Setters
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public void setCode(int code) {
+        this.code = code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
+    }
+}
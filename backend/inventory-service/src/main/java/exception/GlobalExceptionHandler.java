@@ -0,0 +1,72 @@
+package com.velixa.inventory.exception;
+
+import java.time.LocalDateTime;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+	@ExceptionHandler(InsufficientStockException.class)
+	public ResponseEntity<ErrorResponse> handleInsufficientStock(InsufficientStockException ex) {
+	    ErrorResponse error = new ErrorResponse(
+	            "FAILED",
+	            HttpStatus.CONFLICT.value(),
+	            ex.getMessage(),
+	            LocalDateTime.now()
+	    );
+	    return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+	}
+
+
+	@ExceptionHandler(ReservationStateException.class)
+	public ResponseEntity<ErrorResponse> handleReservationState(ReservationStateException ex) {
+	    ErrorResponse error = new ErrorResponse(
+	            "FAILED",
+	            HttpStatus.CONFLICT.value(),
+	            ex.getMessage(),
+	            LocalDateTime.now()
+	    );
+	    return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+	}
+
+
+	@ExceptionHandler(IngestionStateException.class)
+	public ResponseEntity<ErrorResponse> handleIngestionState(IngestionStateException ex) {
+	    ErrorResponse error = new ErrorResponse(
+	            "FAILED",
+	            HttpStatus.CONFLICT.value(),
+	            ex.getMessage(),
+	            LocalDateTime.now()
+	    );
+	    return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+	}
+
+
+	@ExceptionHandler(StreamCapacityException.class)
+	public ResponseEntity<ErrorResponse> handleStreamCapacity(StreamCapacityException ex) {
+	    ErrorResponse error = new ErrorResponse(
+	            "FAILED",
+	            HttpStatus.SERVICE_UNAVAILABLE.value(),
+	            ex.getMessage(),
+	            LocalDateTime.now()
+	    );
+	    return new ResponseEntity<>(error, HttpStatus.SERVICE_UNAVAILABLE);
+	}
+
+
+	@ExceptionHandler(IllegalArgumentException.class)
+	public ResponseEntity<ErrorResponse> handleBadRequest(IllegalArgumentException ex) {
+	    ErrorResponse error = new ErrorResponse(
+	            "FAILED",
+	            HttpStatus.BAD_REQUEST.value(),
+	            ex.getMessage(),
+	            LocalDateTime.now()
+	    );
+	    return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+	}
+
+}
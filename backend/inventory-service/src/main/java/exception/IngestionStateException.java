@@ -0,0 +1,9 @@
+package com.velixa.inventory.exception;
+
+public class IngestionStateException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+	public IngestionStateException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,9 @@
+package com.velixa.inventory.exception;
+
+public class ReservationStateException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+	public ReservationStateException(String message) {
+        super(message);
+    }
+}
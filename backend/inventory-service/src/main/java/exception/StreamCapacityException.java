@@ -0,0 +1,9 @@
+package com.velixa.inventory.exception;
+
+public class StreamCapacityException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+	public StreamCapacityException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,346 @@
+package com.velixa.inventory.hot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.velixa.inventory.exception.InsufficientStockException;
+import com.velixa.inventory.model.Inventory;
+import com.velixa.inventory.repository.InventoryRepository;
+import com.velixa.inventory.service.InventoryStatus;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Optional "hot counter" mode: quantities live in memory and are written
+ * behind to the inventory collection, so hot SKUs stop contending on a single
+ * Mongo document.
+ *
+ * Every change is journaled locally before it is acknowledged, and by
+ * default forced to disk, so acknowledged changes survive an OS crash or
+ * power loss. With {@code inventory.hot-counters.journal-fsync=false} they
+ * only survive a crash of this process. Changed
+ * products are coalesced and flushed as one unordered bulk write every
+ * {@code inventory.hot-counters.flush-interval-ms}, or sooner once
+ * {@code inventory.hot-counters.flush-threshold} products are pending. On
+ * start-up anything left in the journal is written to Mongo before serving.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.hot-counters.enabled", havingValue = "true")
+public class HotInventoryCounters {
+    
+    private static final Logger log = LoggerFactory.getLogger(HotInventoryCounters.class);
+    
+    @Autowired
+    private InventoryRepository inventoryRepository;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private InventoryStatus inventoryStatus;
+    
+    @Value("${inventory.hot-counters.flush-threshold:1000}")
+    private int flushThreshold;
+    
+    @Value("${inventory.hot-counters.journal-dir:./data/hot-counters}")
+    private String journalDir;
+    
+    @Value("${inventory.hot-counters.journal-fsync:true}")
+    private boolean journalFsync;
+    
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private InventoryJournal journal;
+    
+    @PostConstruct
+    public void recover() throws IOException {
+        journal = new InventoryJournal(Paths.get(journalDir), journalFsync);
+        Map<String, Integer> pending = journal.replay();
+        if (!pending.isEmpty()) {
+            write(pending);
+            log.info("Recovered {} unflushed inventory counters from {}", pending.size(), journalDir);
+        }
+        journal.reset();
+    }
+    
+    public Optional<Inventory> get(String productId) {
+        return Optional.ofNullable(counter(productId)).map(counter -> counter.toInventory(productId));
+    }
+    
+    /**
+     * Current quantities of several products. Those not cached yet are
+     * loaded with one query rather than one lookup each.
+     * 
+     * @return quantities of the products that have an inventory record
+     */
+    public Map<String, Integer> quantities(Collection<String> productIds) {
+        Map<String, Integer> quantities = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String productId : productIds) {
+            Counter counter = counters.get(productId);
+            if (counter != null) {
+                quantities.put(productId, counter.quantity.get());
+            } else {
+                missing.add(productId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Inventory inventory : inventoryRepository.findAllByProductIdIn(missing)) {
+                quantities.put(inventory.getProductId(), cache(inventory).quantity.get());
+            }
+        }
+        return quantities;
+    }
+    
+    public boolean isInStock(String productId, int requiredQuantity) {
+        Counter counter = counter(productId);
+        return counter != null && counter.quantity.get() >= requiredQuantity;
+    }
+    
+    public Inventory set(String productId, int quantity) {
+        Counter counter = counter(productId);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(productId, id -> new Counter(null, null, 0));
+        }
+        int previous = counter.quantity.getAndSet(quantity);
+        try {
+            touch(productId, counter);
+        } catch (UncheckedIOException e) {
+            counter.quantity.compareAndSet(quantity, previous);
+            throw e;
+        }
+        return counter.toInventory(productId);
+    }
+    
+    public Optional<Inventory> adjust(String productId, int delta) {
+        Counter counter = counter(productId);
+        if (counter == null) {
+            return Optional.empty();
+        }
+        // Lock-free decrement that never takes the quantity below zero
+        int current;
+        do {
+            current = counter.quantity.get();
+            if (delta < 0 && current < -delta) {
+                throw new InsufficientStockException("Insufficient stock for product " + productId);
+            }
+        } while (!counter.quantity.compareAndSet(current, current + delta));
+        
+        try {
+            touch(productId, counter);
+        } catch (UncheckedIOException e) {
+            // Undo under the same floor: units sold meanwhile out of this delta stay sold
+            int undone;
+            do {
+                current = counter.quantity.get();
+                undone = Math.max(0, current - delta);
+            } while (!counter.quantity.compareAndSet(current, undone));
+            throw e;
+        }
+        return Optional.of(counter.toInventory(productId));
+    }
+    
+    /**
+     * Replaces the cached counter after a full inventory record was written
+     * straight to Mongo.
+     */
+    public void reset(Inventory saved) {
+        Counter counter = new Counter(saved.getWarehouseLocation(), saved.getLowStockThreshold(), saved.getQuantity());
+        counters.put(saved.getProductId(), counter);
+        dirty.remove(saved.getProductId());
+        journal.recordQuantity(saved.getProductId(), counter.quantity::get);
+    }
+    
+    /**
+     * Drops a product before its inventory record is deleted. Holds the
+     * flush lock so an in-flight flush cannot write the product back.
+     */
+    public void remove(String productId) {
+        flushLock.lock();
+        try {
+            counters.remove(productId);
+            dirty.remove(productId);
+            journal.recordRemoval(productId);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    /**
+     * Runs a direct write of absolute quantities to Mongo, with the flush
+     * lock held so no pending flush can overwrite it with older values. The
+     * new quantities are journaled first and the cached counters dropped, so
+     * the next access reloads them from the written records.
+     */
+    public void overwrite(Map<String, Integer> quantities, Runnable write) {
+        flushLock.lock();
+        try {
+            quantities.forEach((productId, quantity) -> {
+                counters.remove(productId);
+                dirty.remove(productId);
+                journal.recordQuantity(productId, () -> quantity);
+            });
+            write.run();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${inventory.hot-counters.flush-interval-ms:200}")
+    public void flush() {
+        if (flushLock.tryLock()) {
+            try {
+                flushPending();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() throws IOException {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+        journal.close();
+    }
+    
+    private void flushPending() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> snapshot;
+        try {
+            snapshot = journal.rotate(this::drainDirty);
+        } catch (IOException e) {
+            log.warn("Could not rotate inventory journal, will retry", e);
+            return;
+        }
+        try {
+            write(snapshot);
+            journal.completeFlush();
+        } catch (RuntimeException | IOException e) {
+            // Values stay in the pending journal; re-mark them so the next flush retries
+            dirty.addAll(snapshot.keySet());
+            log.warn("Failed to flush {} inventory counters, will retry", snapshot.size(), e);
+        }
+    }
+    
+    private Map<String, Integer> drainDirty() {
+        Map<String, Integer> snapshot = new HashMap<>();
+        for (Iterator<String> it = dirty.iterator(); it.hasNext();) {
+            String productId = it.next();
+            it.remove();
+            Counter counter = counters.get(productId);
+            if (counter != null) {
+                snapshot.put(productId, counter.quantity.get());
+            }
+        }
+        return snapshot;
+    }
+    
+    private void write(Map<String, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        String now = LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME);
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, Inventory.class);
+        quantities.forEach((productId, quantity) -> {
+            Query query = Query.query(Criteria.where("productId").is(productId));
+            if (quantity == null) {
+                bulk.remove(query);
+            } else {
+                bulk.upsert(query, AggregationUpdate.update()
+                        .set("quantity").toValue(quantity)
+                        .set("lastUpdated").toValue(now)
+                        .set("status").toValue(inventoryStatus.expression()));
+            }
+        });
+        bulk.execute();
+    }
+    
+    private Counter counter(String productId) {
+        Counter counter = counters.get(productId);
+        if (counter != null) {
+            return counter;
+        }
+        // Loaded outside computeIfAbsent to keep Mongo I/O out of the map's bin lock
+        return inventoryRepository.findByProductId(productId)
+                .map(this::cache)
+                .orElse(null);
+    }
+    
+    /** The cached counter, created from the record if there is none yet. */
+    private Counter cache(Inventory inventory) {
+        return counters.computeIfAbsent(inventory.getProductId(),
+                id -> new Counter(inventory.getWarehouseLocation(), inventory.getLowStockThreshold(), inventory.getQuantity()));
+    }
+    
+    private void touch(String productId, Counter counter) {
+        counter.lastUpdated = LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME);
+        dirty.add(productId);
+        journal.recordQuantity(productId, counter.quantity::get);
+        if (dirty.size() >= flushThreshold) {
+            CompletableFuture.runAsync(this::flush);
+        }
+    }
+    
+    private final class Counter {
+        private final AtomicInteger quantity;
+        private final String warehouseLocation;
+        private final Integer lowStockThreshold;
+        private volatile String lastUpdated;
+        
+        private Counter(String warehouseLocation, Integer lowStockThreshold, int quantity) {
+            this.warehouseLocation = warehouseLocation;
+            this.lowStockThreshold = lowStockThreshold;
+            this.quantity = new AtomicInteger(quantity);
+        }
+        
+        private Inventory toInventory(String productId) {
+            int current = quantity.get();
+            Inventory inventory = new Inventory();
+            inventory.setProductId(productId);
+            inventory.setQuantity(current);
+            inventory.setWarehouseLocation(warehouseLocation);
+            inventory.setLowStockThreshold(lowStockThreshold);
+            inventory.setStatus(inventoryStatus.of(current, lowStockThreshold));
+            inventory.setLastUpdated(lastUpdated);
+            return inventory;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.velixa.inventory.hot;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Local append-only log of hot counter values that have not reached Mongo
+ * yet. Each line holds the absolute quantity of a product (or a removal), so
+ * replaying is idempotent: the last line per product wins.
+ *
+ * A flush rotates the active file to {@code journal.flushing.log} and deletes
+ * it once the values are written. If a flush fails, the next rotation appends
+ * onto the pending file instead of replacing it.
+ *
+ * Appends are handed to a single writer thread, which writes everything
+ * queued since its last write in one go (and one fsync), so concurrent
+ * adjustments share the file I/O instead of taking turns on it. Callers
+ * still wait until their line is written.
+ */
+final class InventoryJournal {
+
+    private static final char SET = 'S';
+    private static final char REMOVE = 'D';
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final Path activePath;
+    private final Path flushingPath;
+    private final boolean fsync;
+    private final BlockingQueue<Append> queue = new LinkedBlockingQueue<>();
+    // Held by the writer for each batch, and by anything that touches the files
+    private final ReentrantLock fileLock = new ReentrantLock();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private FileChannel channel;
+
+    InventoryJournal(Path directory, boolean fsync) throws IOException {
+        Files.createDirectories(directory);
+        this.activePath = directory.resolve("journal.log");
+        this.flushingPath = directory.resolve("journal.flushing.log");
+        this.fsync = fsync;
+        this.writer = new Thread(this::writeLoop, "inventory-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return the last recorded quantity per product across pending and
+     *         active files; a null value marks a removed product
+     */
+    Map<String, Integer> replay() throws IOException {
+        fileLock.lock();
+        try {
+            Map<String, Integer> latest = new LinkedHashMap<>();
+            read(flushingPath, latest);
+            read(activePath, latest);
+            return latest;
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /** Discards both files and starts an empty active journal. */
+    void reset() throws IOException {
+        fileLock.lock();
+        try {
+            closeChannel();
+            Files.deleteIfExists(flushingPath);
+            Files.deleteIfExists(activePath);
+            open();
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Appends the product's current quantity and waits until it is written.
+     * The supplier is read by the writer under the file lock, so the last
+     * line written for a product always reflects the latest value, whatever
+     * order concurrent writers arrive in.
+     */
+    void recordQuantity(String productId, IntSupplier quantity) {
+        append(new Append(productId, quantity));
+    }
+
+    void recordRemoval(String productId) {
+        append(new Append(productId, null));
+    }
+
+    /**
+     * Takes a snapshot and moves everything journaled so far to the pending
+     * file in one step, so no write can land between the two.
+     */
+    <T> T rotate(Supplier<T> snapshot) throws IOException {
+        fileLock.lock();
+        try {
+            T result = snapshot.get();
+            closeChannel();
+            if (Files.exists(flushingPath)) {
+                Files.write(flushingPath, Files.readAllBytes(activePath), StandardOpenOption.APPEND);
+                Files.delete(activePath);
+            } else {
+                Files.move(activePath, flushingPath);
+            }
+            open();
+            return result;
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /** Called once the rotated values are durable in Mongo. */
+    void completeFlush() throws IOException {
+        fileLock.lock();
+        try {
+            Files.deleteIfExists(flushingPath);
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /** Writes whatever is still queued, then stops the writer and closes the file. */
+    void close() throws IOException {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        fileLock.lock();
+        try {
+            closeChannel();
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.force(true);
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(activePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void append(Append entry) {
+        if (!running) {
+            throw new UncheckedIOException(new IOException("Inventory journal " + activePath + " is closed"));
+        }
+        queue.add(entry);
+        try {
+            while (true) {
+                try {
+                    entry.done.get(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (TimeoutException e) {
+                    // Queued just as the journal closed: nothing is left to write it
+                    if (!writer.isAlive() && !entry.done.isDone()) {
+                        throw new UncheckedIOException(new IOException("Inventory journal " + activePath + " is closed"));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted waiting for the inventory journal"));
+        } catch (ExecutionException e) {
+            throw (UncheckedIOException) e.getCause();
+        }
+    }
+
+    private void writeLoop() {
+        List<Append> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Append first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            queue.drainTo(batch);
+            if (batch.isEmpty()) {
+                continue;
+            }
+            UncheckedIOException failure = write(batch);
+            for (Append entry : batch) {
+                if (failure == null) {
+                    entry.done.complete(null);
+                } else {
+                    entry.done.completeExceptionally(failure);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes the batch as one append
+     *
+     * @return null on success, otherwise the failure every entry in it shares
+     */
+    private UncheckedIOException write(List<Append> batch) {
+        fileLock.lock();
+        try {
+            if (channel == null) {
+                throw new IOException("Inventory journal " + activePath + " is not open");
+            }
+            StringBuilder lines = new StringBuilder(batch.size() * 40);
+            for (Append entry : batch) {
+                if (entry.quantity == null) {
+                    lines.append(REMOVE).append('\t').append(entry.productId).append('\n');
+                } else {
+                    lines.append(SET).append('\t').append(entry.productId).append('\t')
+                            .append(entry.quantity.getAsInt()).append('\n');
+                }
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+            return null;
+        } catch (IOException e) {
+            return new UncheckedIOException("Failed to append to inventory journal " + activePath, e);
+        } catch (RuntimeException e) {
+            return new UncheckedIOException("Failed to append to inventory journal " + activePath, new IOException(e));
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    private static void read(Path path, Map<String, Integer> latest) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                // A torn last line from a crash mid-write is skipped
+                if (parts.length == 3 && parts[0].charAt(0) == SET) {
+                    try {
+                        latest.put(parts[1], Integer.valueOf(parts[2]));
+                    } catch (NumberFormatException e) {
+                        continue;
+                    }
+                } else if (parts.length == 2 && parts[0].charAt(0) == REMOVE) {
+                    latest.put(parts[1], null);
+                }
+            }
+        }
+    }
+
+    private static final class Append {
+        private final String productId;
+        private final IntSupplier quantity; // null for a removal
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Append(String productId, IntSupplier quantity) {
+            this.productId = productId;
+            this.quantity = quantity;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.velixa.inventory.ingest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.velixa.inventory.dto.IngestionStatus;
+import com.velixa.inventory.dto.InventoryBulkResult;
+
+/**
+ * Live counters of one ingestion run, updated by the parser and the write
+ * lanes and read by the status endpoints.
+ */
+final class IngestionProgress {
+    
+    static final String RUNNING = "RUNNING";
+    static final String COMPLETED = "COMPLETED";
+    static final String FAILED = "FAILED";
+    
+    private final String file;
+    private final long totalBytes;
+    private final int maxErrors;
+    private final Instant startedAt = Instant.now();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong rowsParsed = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong rowsRejected = new AtomicLong();
+    private final AtomicLong matched = new AtomicLong();
+    private final AtomicLong modified = new AtomicLong();
+    private final AtomicLong upserted = new AtomicLong();
+    private final List<String> errors = new ArrayList<>();
+    private volatile String state = RUNNING;
+    private volatile Instant finishedAt;
+    private volatile String failure;
+    
+    IngestionProgress(String file, long totalBytes, int maxErrors) {
+        this.file = file;
+        this.totalBytes = totalBytes;
+        this.maxErrors = maxErrors;
+    }
+    
+    boolean isRunning() {
+        return RUNNING.equals(state);
+    }
+    
+    void bytesRead(long position) {
+        bytesRead.set(position);
+    }
+    
+    void parsed() {
+        rowsParsed.incrementAndGet();
+    }
+    
+    void rejected(long lineNumber, String reason) {
+        rowsRejected.incrementAndGet();
+        synchronized (errors) {
+            if (errors.size() < maxErrors) {
+                errors.add("Line " + lineNumber + ": " + reason);
+            }
+        }
+    }
+    
+    void written(InventoryBulkResult result) {
+        rowsWritten.addAndGet(result.getReceived());
+        matched.addAndGet(result.getMatched());
+        modified.addAndGet(result.getModified());
+        upserted.addAndGet(result.getUpserted());
+    }
+    
+    void complete() {
+        finish(COMPLETED, null);
+    }
+    
+    void fail(Throwable cause) {
+        finish(FAILED, cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName());
+    }
+    
+    private synchronized void finish(String finalState, String reason) {
+        if (isRunning()) {
+            failure = reason;
+            finishedAt = Instant.now();
+            state = finalState;
+        }
+    }
+    
+    IngestionStatus snapshot() {
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        long millis = Math.max(1, Duration.between(startedAt, end).toMillis());
+        List<String> errorsCopy;
+        synchronized (errors) {
+            errorsCopy = new ArrayList<>(errors);
+        }
+        return new IngestionStatus(file, state, startedAt, finishedAt, totalBytes, bytesRead.get(),
+                rowsParsed.get(), rowsWritten.get(), rowsRejected.get(),
+                matched.get(), modified.get(), upserted.get(),
+                rowsWritten.get() * 1000.0 / millis, errorsCopy, failure);
+    }
+}
@@ -0,0 +1,274 @@
+package com.velixa.inventory.ingest;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a stock CSV ({@code productId,quantity,warehouseLocation}) through
+ * memory-mapped windows of the file, so multi-gigabyte files are paged in
+ * by the OS instead of being copied through a stream.
+ *
+ * Each line is copied once into a reusable row buffer and parsed there:
+ * the quantity is read straight from the bytes and no String is made for
+ * the line or its separators. Only the product ID becomes a new String;
+ * warehouse locations repeat heavily and are shared through a small table.
+ *
+ * Fields may be double-quoted; quoted fields cannot span lines.
+ */
+final class MappedCsvReader {
+    
+    interface RowHandler {
+        void row(long lineNumber, String productId, int quantity, String warehouseLocation);
+        
+        void reject(long lineNumber, String reason);
+        
+        void progress(long bytesRead);
+    }
+    
+    private static final int PRODUCT_ID = 0;
+    private static final int QUANTITY = 1;
+    private static final int LOCATION = 2;
+    private static final int MAX_FIELDS = 16;
+    
+    private final Path file;
+    private final long windowBytes;
+    private final StringTable locations = new StringTable(1024);
+    
+    private byte[] row = new byte[256];
+    private final int[] fieldStart = new int[MAX_FIELDS];
+    private final int[] fieldEnd = new int[MAX_FIELDS];
+    private final boolean[] fieldEscaped = new boolean[MAX_FIELDS];
+    private int[] columns = { PRODUCT_ID, QUANTITY, LOCATION };
+    
+    MappedCsvReader(Path file, long windowBytes) {
+        if (windowBytes <= 0 || windowBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("windowBytes must be between 1 and " + Integer.MAX_VALUE);
+        }
+        this.file = file;
+        this.windowBytes = windowBytes;
+    }
+    
+    void read(RowHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            long lineNumber = 0;
+            while (position < size) {
+                long length = Math.min(windowBytes, size - position);
+                boolean last = position + length == size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                
+                int lineStart = 0;
+                int limit = (int) length;
+                for (int i = 0; i < limit; i++) {
+                    if (window.get(i) == '\n') {
+                        parseLine(window, lineStart, i, ++lineNumber, handler);
+                        lineStart = i + 1;
+                    }
+                }
+                if (last && lineStart < limit) {
+                    parseLine(window, lineStart, limit, ++lineNumber, handler);
+                    lineStart = limit;
+                }
+                if (lineStart == 0 && !last) {
+                    throw new IOException("Line " + (lineNumber + 1) + " is longer than the mapping window of " + windowBytes + " bytes");
+                }
+                // The next window starts at the first incomplete line
+                position += lineStart;
+                handler.progress(position);
+            }
+        }
+    }
+    
+    private void parseLine(MappedByteBuffer window, int from, int to, long lineNumber, RowHandler handler) {
+        int length = to - from;
+        if (length > 0 && window.get(to - 1) == '\r') {
+            length--;
+        }
+        if (row.length < length) {
+            row = new byte[Math.max(length, row.length * 2)];
+        }
+        window.get(from, row, 0, length);
+        int start = 0;
+        if (lineNumber == 1 && length >= 3 && (row[0] & 0xFF) == 0xEF && (row[1] & 0xFF) == 0xBB && (row[2] & 0xFF) == 0xBF) {
+            start = 3;
+        }
+        if (start == length) {
+            return;
+        }
+        
+        int fields = split(start, length);
+        if (fields < 0) {
+            handler.reject(lineNumber, "Unterminated quoted field");
+            return;
+        }
+        if (lineNumber == 1 && readHeader(fields)) {
+            return;
+        }
+        
+        int id = columns[PRODUCT_ID];
+        int qty = columns[QUANTITY];
+        int loc = columns[LOCATION];
+        if (id >= fields || qty >= fields || fieldStart[id] == fieldEnd[id]) {
+            handler.reject(lineNumber, "Expected productId and quantity");
+            return;
+        }
+        long quantity = parseQuantity(fieldStart[qty], fieldEnd[qty]);
+        if (quantity < 0) {
+            handler.reject(lineNumber, "Invalid quantity");
+            return;
+        }
+        String location = loc < fields && fieldStart[loc] < fieldEnd[loc]
+                ? (fieldEscaped[loc] ? text(loc) : locations.intern(row, fieldStart[loc], fieldEnd[loc]))
+                : null;
+        handler.row(lineNumber, text(id), (int) quantity, location);
+    }
+    
+    /**
+     * Records the bounds of up to {@code MAX_FIELDS} fields of the row
+     * buffer; any further fields are ignored.
+     * 
+     * @return the number of fields, or -1 if a quote is left open
+     */
+    private int split(int from, int to) {
+        int field = 0;
+        int i = from;
+        while (field < MAX_FIELDS) {
+            fieldEscaped[field] = false;
+            if (i < to && row[i] == '"') {
+                int start = ++i;
+                while (true) {
+                    if (i >= to) {
+                        return -1;
+                    }
+                    if (row[i] == '"') {
+                        if (i + 1 < to && row[i + 1] == '"') {
+                            fieldEscaped[field] = true;
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                fieldStart[field] = start;
+                fieldEnd[field] = i++;
+                while (i < to && row[i] != ',') {
+                    i++;
+                }
+            } else {
+                int start = i;
+                while (i < to && row[i] != ',') {
+                    i++;
+                }
+                fieldStart[field] = start;
+                fieldEnd[field] = trimEnd(start, i);
+                fieldStart[field] = trimStart(start, fieldEnd[field]);
+            }
+            field++;
+            if (i >= to) {
+                break;
+            }
+            i++; // the comma
+        }
+        return field;
+    }
+    
+    private boolean readHeader(int fields) {
+        int[] found = { -1, -1, -1 };
+        for (int f = 0; f < fields; f++) {
+            String name = new String(row, fieldStart[f], fieldEnd[f] - fieldStart[f], StandardCharsets.UTF_8).trim();
+            if (name.equalsIgnoreCase("productId")) {
+                found[PRODUCT_ID] = f;
+            } else if (name.equalsIgnoreCase("quantity")) {
+                found[QUANTITY] = f;
+            } else if (name.equalsIgnoreCase("warehouseLocation")) {
+                found[LOCATION] = f;
+            }
+        }
+        if (found[PRODUCT_ID] < 0 || found[QUANTITY] < 0) {
+            return false;
+        }
+        columns = new int[] { found[PRODUCT_ID], found[QUANTITY], found[LOCATION] < 0 ? Integer.MAX_VALUE : found[LOCATION] };
+        return true;
+    }
+    
+    private long parseQuantity(int from, int to) {
+        if (from == to || to - from > 10) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = row[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value > Integer.MAX_VALUE ? -1 : value;
+    }
+    
+    private String text(int field) {
+        String value = new String(row, fieldStart[field], fieldEnd[field] - fieldStart[field], StandardCharsets.UTF_8);
+        return fieldEscaped[field] ? value.replace("\"\"", "\"") : value;
+    }
+    
+    private int trimStart(int from, int to) {
+        while (from < to && row[from] == ' ') {
+            from++;
+        }
+        return from;
+    }
+    
+    private int trimEnd(int from, int to) {
+        while (to > from && row[to - 1] == ' ') {
+            to--;
+        }
+        return to;
+    }
+    
+    /**
+     * Open-addressed table from byte ranges to Strings, so a repeated value
+     * is looked up without allocating. Once full, new values are simply
+     * not cached.
+     */
+    private static final class StringTable {
+        private final byte[][] keys;
+        private final String[] values;
+        private final int mask;
+        private int size;
+        
+        private StringTable(int capacity) {
+            keys = new byte[capacity * 2][];
+            values = new String[capacity * 2];
+            mask = capacity * 2 - 1;
+        }
+        
+        private String intern(byte[] source, int from, int to) {
+            int hash = 1;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + source[i];
+            }
+            for (int slot = (hash ^ (hash >>> 16)) & mask;; slot = (slot + 1) & mask) {
+                byte[] key = keys[slot];
+                if (key == null) {
+                    String value = new String(source, from, to - from, StandardCharsets.UTF_8);
+                    if (size < keys.length / 2) {
+                        keys[slot] = Arrays.copyOfRange(source, from, to);
+                        values[slot] = value;
+                        size++;
+                    }
+                    return value;
+                }
+                if (Arrays.equals(key, 0, key.length, source, from, to)) {
+                    return values[slot];
+                }
+            }
+        }
+    }
+}
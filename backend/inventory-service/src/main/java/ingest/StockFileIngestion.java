@@ -0,0 +1,271 @@
+package com.velixa.inventory.ingest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.velixa.inventory.dto.IngestionStatus;
+import com.velixa.inventory.dto.InventoryBulkItem;
+import com.velixa.inventory.exception.IngestionStateException;
+import com.velixa.inventory.service.InventoryService;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Loads a stock CSV dropped in {@code inventory.ingest.directory} into the
+ * inventory collection. One job runs at a time.
+ *
+ * Parsed rows are routed by product ID to one of several write lanes. Each
+ * lane writes its chunks in order through the bulk upsert, so the lanes run
+ * in parallel while later rows for a product still win. Every lane owns a
+ * small pool of reusable chunk buffers; when they are all in flight the
+ * parser waits, which bounds memory however large the file is.
+ */
+@Component
+public class StockFileIngestion {
+    
+    private static final Logger log = LoggerFactory.getLogger(StockFileIngestion.class);
+    
+    private static final int BUFFERS_PER_LANE = 3;
+    
+    @Autowired
+    private InventoryService inventoryService;
+    
+    @Value("${inventory.ingest.directory:./data/ingest}")
+    private String directory;
+    
+    @Value("${inventory.ingest.window-bytes:268435456}")
+    private long windowBytes;
+    
+    @Value("${inventory.ingest.chunk-size:2000}")
+    private int chunkSize;
+    
+    @Value("${inventory.ingest.parallelism:4}")
+    private int parallelism;
+    
+    @Value("${inventory.ingest.max-reported-errors:100}")
+    private int maxReportedErrors;
+    
+    private final AtomicReference<IngestionProgress> current = new AtomicReference<>();
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stock-ingestion");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    @PostConstruct
+    public void validate() {
+        // A window is a single mapping addressed with int offsets
+        if (windowBytes <= 0 || windowBytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("inventory.ingest.window-bytes must be between 1 and " + Integer.MAX_VALUE);
+        }
+    }
+    
+    /**
+     * Starts ingesting a file in the background
+     * 
+     * @param fileName name of the file, relative to the ingestion directory
+     * @return the status of the new run
+     * @throws IngestionStateException if a run is already in progress
+     */
+    public IngestionStatus start(String fileName) {
+        Path file = resolve(fileName);
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read ingestion file: " + fileName);
+        }
+        
+        IngestionProgress progress = new IngestionProgress(file.getFileName().toString(), size, maxReportedErrors);
+        IngestionProgress previous = current.get();
+        if ((previous != null && previous.isRunning()) || !current.compareAndSet(previous, progress)) {
+            throw new IngestionStateException("An ingestion is already running");
+        }
+        runner.execute(() -> run(file, progress));
+        return progress.snapshot();
+    }
+    
+    /**
+     * @return the status of the running or most recent run, if any
+     */
+    public Optional<IngestionStatus> status() {
+        return Optional.ofNullable(current.get()).map(IngestionProgress::snapshot);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+    
+    private Path resolve(String fileName) {
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalArgumentException("file is required");
+        }
+        try {
+            Path root = Paths.get(directory).toRealPath();
+            Path file = root.resolve(fileName).normalize();
+            // Real paths so neither ".." nor a symlink can reach outside the directory
+            if (!file.startsWith(root) || !Files.isRegularFile(file) || !file.toRealPath().startsWith(root)) {
+                throw new IllegalArgumentException("Unknown ingestion file: " + fileName);
+            }
+            return file;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unknown ingestion file: " + fileName);
+        }
+    }
+    
+    private void run(Path file, IngestionProgress progress) {
+        Lane[] lanes = new Lane[parallelism];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(i, progress);
+        }
+        try {
+            new MappedCsvReader(file, windowBytes).read(new MappedCsvReader.RowHandler() {
+                @Override
+                public void row(long lineNumber, String productId, int quantity, String warehouseLocation) {
+                    progress.parsed();
+                    lanes[Math.floorMod(productId.hashCode(), lanes.length)].add(productId, quantity, warehouseLocation);
+                }
+                
+                @Override
+                public void reject(long lineNumber, String reason) {
+                    progress.rejected(lineNumber, reason);
+                }
+                
+                @Override
+                public void progress(long bytesRead) {
+                    progress.bytesRead(bytesRead);
+                }
+            });
+            for (Lane lane : lanes) {
+                lane.submit();
+            }
+            for (Lane lane : lanes) {
+                lane.await();
+            }
+            progress.complete();
+            log.info("Ingested {}: {}", file.getFileName(), progress.snapshot());
+        } catch (Exception e) {
+            progress.fail(e);
+            log.warn("Ingestion of {} failed", file.getFileName(), e);
+        } finally {
+            for (Lane lane : lanes) {
+                lane.writer.shutdownNow();
+            }
+        }
+    }
+    
+    private final class Lane {
+        private final ExecutorService writer;
+        private final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(BUFFERS_PER_LANE);
+        private final IngestionProgress progress;
+        private Chunk filling;
+        
+        private Lane(int index, IngestionProgress progress) {
+            this.progress = progress;
+            this.writer = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "stock-ingestion-lane-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (int i = 0; i < BUFFERS_PER_LANE; i++) {
+                free.add(new Chunk(chunkSize));
+            }
+        }
+        
+        private void add(String productId, int quantity, String warehouseLocation) {
+            if (filling == null) {
+                filling = take();
+            }
+            InventoryBulkItem item = filling.items[filling.size++];
+            item.setProductId(productId);
+            item.setQuantity(quantity);
+            item.setWarehouseLocation(warehouseLocation);
+            if (filling.size == filling.items.length) {
+                submit();
+            }
+        }
+        
+        private void submit() {
+            if (filling == null || filling.size == 0) {
+                return;
+            }
+            Chunk chunk = filling;
+            filling = null;
+            writer.execute(() -> {
+                try {
+                    if (progress.isRunning()) {
+                        progress.written(inventoryService.bulkUpsert(chunk.view()));
+                    }
+                } catch (RuntimeException e) {
+                    progress.fail(e);
+                } finally {
+                    chunk.size = 0;
+                    free.add(chunk);
+                }
+            });
+        }
+        
+        private Chunk take() {
+            try {
+                // Backpressure: wait for a buffer to come back from the writer
+                Chunk chunk;
+                while ((chunk = free.poll(1, TimeUnit.SECONDS)) == null) {
+                    checkRunning();
+                }
+                checkRunning();
+                return chunk;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Ingestion interrupted");
+            }
+        }
+        
+        private void checkRunning() {
+            if (!progress.isRunning()) {
+                throw new IllegalStateException("Ingestion aborted after a failed write");
+            }
+        }
+        
+        private void await() throws InterruptedException {
+            writer.shutdown();
+            while (!writer.awaitTermination(1, TimeUnit.SECONDS)) {
+                checkRunning();
+            }
+        }
+    }
+    
+    private static final class Chunk {
+        private final InventoryBulkItem[] items;
+        private int size;
+        
+        private Chunk(int capacity) {
+            items = new InventoryBulkItem[capacity];
+            for (int i = 0; i < capacity; i++) {
+                items[i] = new InventoryBulkItem();
+            }
+        }
+        
+        private List<InventoryBulkItem> view() {
+            return Arrays.asList(items).subList(0, size);
+        }
+    }
+}
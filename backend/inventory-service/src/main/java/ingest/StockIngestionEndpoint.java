@@ -0,0 +1,26 @@
+package com.velixa.inventory.ingest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import com.velixa.inventory.dto.IngestionStatus;
+
+/**
+ * Exposes the progress and throughput of the current or last stock file
+ * ingestion at {@code /actuator/stockingestion}.
+ */
+@Component
+@Endpoint(id = "stockingestion")
+public class StockIngestionEndpoint {
+    
+    @Autowired
+    private StockFileIngestion stockFileIngestion;
+    
+    @ReadOperation
+    public IngestionStatus status() {
+        // A null result is reported as 404
+        return stockFileIngestion.status().orElse(null);
+    }
+}
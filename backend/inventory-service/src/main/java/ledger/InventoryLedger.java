@@ -0,0 +1,314 @@
+package com.velixa.inventory.ledger;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.velixa.inventory.exception.InsufficientStockException;
+import com.velixa.inventory.model.Inventory;
+import com.velixa.inventory.model.InventorySnapshot;
+import com.velixa.inventory.model.LedgerEntry;
+import com.velixa.inventory.repository.InventoryRepository;
+import com.velixa.inventory.service.InventoryStatus;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Optional event-sourced mode: stock changes are appended to
+ * {@code inventory_ledger} instead of updating the inventory document, so
+ * write throughput is bounded by inserts rather than by contention on one
+ * document per product.
+ *
+ * Current stock is the product's snapshot plus every ledger entry after it.
+ * A background fold moves snapshots forward, but only over entries older
+ * than {@code inventory.ledger.fold-lag-ms}. Entries from different
+ * instances are ordered by ObjectId, which is only roughly time-ordered, and
+ * the lag keeps a late insert from landing behind a snapshot. The fold is
+ * purely an optimisation: reads always add the full tail after the snapshot.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.ledger.enabled", havingValue = "true")
+public class InventoryLedger {
+    
+    private static final Logger log = LoggerFactory.getLogger(InventoryLedger.class);
+    
+    @Autowired
+    private InventoryRepository inventoryRepository;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private InventoryStatus inventoryStatus;
+    
+    @Value("${inventory.hot-counters.enabled:false}")
+    private boolean hotCountersEnabled;
+    
+    @Value("${inventory.ledger.fold-lag-ms:5000}")
+    private long foldLagMillis;
+    
+    @Value("${inventory.ledger.fold-batch-size:500}")
+    private int foldBatchSize;
+    
+    @Value("${inventory.ledger.max-history:200}")
+    private int maxHistory;
+    
+    // Entries below this id have been folded; only advanced after a fully successful pass
+    private volatile ObjectId foldWatermark;
+    
+    @PostConstruct
+    public void init() {
+        if (hotCountersEnabled) {
+            throw new IllegalStateException("inventory.ledger.enabled and inventory.hot-counters.enabled are mutually exclusive");
+        }
+        // Resume from the oldest snapshot; products without one are picked up by their next entry
+        Query oldest = new Query().with(Sort.by(Sort.Direction.ASC, "lastEntryId")).limit(1);
+        InventorySnapshot snapshot = mongoTemplate.findOne(oldest, InventorySnapshot.class);
+        foldWatermark = snapshot != null && snapshot.getLastEntryId() != null
+                ? snapshot.getLastEntryId()
+                : new ObjectId(new Date(0), 0);
+    }
+    
+    public Optional<Inventory> get(String productId) {
+        return inventoryRepository.findByProductId(productId).map(inventory -> withQuantity(inventory, currentQuantity(productId)));
+    }
+    
+    public Inventory set(String productId, int quantity) {
+        append(productId, LedgerEntry.SET, quantity, null);
+        // The record itself only carries metadata in this mode; create it on first use
+        mongoTemplate.upsert(Query.query(Criteria.where("productId").is(productId)),
+                new Update().setOnInsert("quantity", quantity)
+                        .setOnInsert("status", inventoryStatus.of(quantity, null))
+                        .set("lastUpdated", now()),
+                Inventory.class);
+        return get(productId).orElseThrow();
+    }
+    
+    /**
+     * Appends an adjustment. A decrement is checked before it is written and
+     * verified after: if concurrent decrements took the total below zero, it
+     * is cancelled with a REVERSAL entry naming it, so racing writers may be
+     * refused but stock is never oversold. A SET landing in between replaces
+     * the adjustment, and the reversal is then ignored (see {@link StockFold}).
+     */
+    public Optional<Inventory> adjust(String productId, int delta) {
+        Optional<Inventory> inventory = inventoryRepository.findByProductId(productId);
+        if (inventory.isEmpty()) {
+            return Optional.empty();
+        }
+        if (delta < 0 && currentQuantity(productId) < -delta) {
+            throw new InsufficientStockException("Insufficient stock for product " + productId);
+        }
+        LedgerEntry adjustment = append(productId, LedgerEntry.ADJUST, delta, null);
+        int quantity = currentQuantity(productId);
+        if (delta < 0 && quantity < 0) {
+            append(productId, LedgerEntry.REVERSAL, -delta, adjustment.getId());
+            throw new InsufficientStockException("Insufficient stock for product " + productId);
+        }
+        return Optional.of(withQuantity(inventory.get(), quantity));
+    }
+    
+    /**
+     * Current quantities of several products with one snapshot query and one
+     * ledger query.
+     * 
+     * @return quantity per product ID, for the given products that have ledger history
+     */
+    public Map<String, Integer> quantities(Collection<String> productIds) {
+        Map<String, InventorySnapshot> snapshots = new HashMap<>();
+        for (InventorySnapshot snapshot : mongoTemplate.find(
+                Query.query(Criteria.where("productId").in(productIds)), InventorySnapshot.class)) {
+            snapshots.put(snapshot.getProductId(), snapshot);
+        }
+        
+        List<Criteria> tails = new ArrayList<>();
+        Map<String, StockFold> folds = new LinkedHashMap<>();
+        for (String productId : productIds) {
+            InventorySnapshot snapshot = snapshots.get(productId);
+            Criteria tail = Criteria.where("productId").is(productId);
+            if (snapshot != null) {
+                folds.put(productId, new StockFold(snapshot.getQuantity(), snapshot.getLastSetId()));
+                tail = tail.and("_id").gt(snapshot.getLastEntryId());
+            }
+            tails.add(tail);
+        }
+        Query query = new Query(new Criteria().orOperator(tails)).with(Sort.by(Sort.Direction.ASC, "_id"));
+        for (LedgerEntry entry : mongoTemplate.find(query, LedgerEntry.class)) {
+            folds.computeIfAbsent(entry.getProductId(), id -> new StockFold(0, null)).apply(entry);
+        }
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        folds.forEach((productId, fold) -> quantities.put(productId, fold.quantity()));
+        return quantities;
+    }
+    
+    /**
+     * Ledger entries of a product, newest first
+     * 
+     * @param productId the ID of the product
+     * @param before only return entries older than this entry ID, null for the newest
+     * @param limit maximum number of entries, capped at {@code inventory.ledger.max-history}
+     * @return the entries
+     */
+    public List<LedgerEntry> history(String productId, String before, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        Criteria criteria = Criteria.where("productId").is(productId);
+        if (before != null) {
+            if (!ObjectId.isValid(before)) {
+                throw new IllegalArgumentException("Invalid ledger entry id: " + before);
+            }
+            criteria = criteria.and("_id").lt(new ObjectId(before));
+        }
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "_id"))
+                .limit(Math.min(limit, maxHistory));
+        return mongoTemplate.find(query, LedgerEntry.class);
+    }
+    
+    /** Records the opening quantity of a newly created inventory record. */
+    public void recordCreated(Inventory saved) {
+        append(saved.getProductId(), LedgerEntry.SET, saved.getQuantity(), null);
+    }
+    
+    /** Records absolute quantities written by a bulk sync, as one insert. */
+    public void recordSets(Map<String, Integer> quantities) {
+        Instant now = Instant.now();
+        List<LedgerEntry> entries = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) ->
+                entries.add(new LedgerEntry(new ObjectId(), productId, LedgerEntry.SET, quantity, now, null)));
+        mongoTemplate.insert(entries, LedgerEntry.class);
+    }
+    
+    /** Drops the snapshot of a deleted product; its entries stay as history. */
+    public void remove(String productId) {
+        mongoTemplate.remove(Query.query(Criteria.where("productId").is(productId)), InventorySnapshot.class);
+    }
+    
+    @Scheduled(fixedDelayString = "${inventory.ledger.fold-interval-ms:5000}")
+    public void fold() {
+        ObjectId cutoff = new ObjectId(new Date(System.currentTimeMillis() - foldLagMillis), 0);
+        ObjectId from = foldWatermark;
+        if (from.compareTo(cutoff) >= 0) {
+            return;
+        }
+        
+        // Products with entries in [watermark, cutoff), found via the _id index
+        Aggregation pending = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("_id").gte(from).lt(cutoff)),
+                Aggregation.group("productId"));
+        List<String> productIds = new ArrayList<>();
+        for (Document group : mongoTemplate.aggregate(pending, LedgerEntry.class, Document.class)) {
+            productIds.add(group.getString("_id"));
+        }
+        
+        boolean complete = true;
+        for (String productId : productIds) {
+            try {
+                foldProduct(productId, cutoff);
+            } catch (RuntimeException e) {
+                complete = false;
+                log.warn("Failed to fold ledger of product {}", productId, e);
+            }
+        }
+        if (complete) {
+            foldWatermark = cutoff;
+        }
+    }
+    
+    private void foldProduct(String productId, ObjectId cutoff) {
+        while (true) {
+            InventorySnapshot snapshot = mongoTemplate.findById(productId, InventorySnapshot.class);
+            ObjectId lastEntryId = snapshot == null ? null : snapshot.getLastEntryId();
+            StockFold fold = snapshot == null
+                    ? new StockFold(0, null)
+                    : new StockFold(snapshot.getQuantity(), snapshot.getLastSetId());
+            
+            Criteria range = Criteria.where("productId").is(productId);
+            range = lastEntryId == null ? range.and("_id").lt(cutoff) : range.and("_id").gt(lastEntryId).lt(cutoff);
+            List<LedgerEntry> entries = mongoTemplate.find(Query.query(range)
+                    .with(Sort.by(Sort.Direction.ASC, "_id")).limit(foldBatchSize), LedgerEntry.class);
+            if (entries.isEmpty()) {
+                return;
+            }
+            for (LedgerEntry entry : entries) {
+                fold.apply(entry);
+            }
+            int quantity = fold.quantity();
+            ObjectId foldedTo = entries.get(entries.size() - 1).getId();
+            
+            // Only moves the snapshot forward from the state it was read in, so re-running or
+            // racing another instance cannot apply the same entries twice
+            Update update = new Update()
+                    .set("quantity", quantity)
+                    .set("lastEntryId", foldedTo)
+                    .set("lastSetId", fold.lastSetId())
+                    .set("updatedAt", Instant.now());
+            Query expected = Query.query(Criteria.where("productId").is(productId).and("lastEntryId").is(lastEntryId));
+            try {
+                if (mongoTemplate.upsert(expected, update, InventorySnapshot.class).getMatchedCount() == 0
+                        && snapshot != null) {
+                    return;
+                }
+            } catch (DuplicateKeyException e) {
+                // Another instance created the snapshot first
+                return;
+            }
+            
+            // Keep the plain record roughly current for anything that reads it directly
+            mongoTemplate.updateFirst(Query.query(Criteria.where("productId").is(productId)),
+                    AggregationUpdate.update()
+                            .set("quantity").toValue(quantity)
+                            .set("status").toValue(inventoryStatus.expression()),
+                    Inventory.class);
+            
+            if (entries.size() < foldBatchSize) {
+                return;
+            }
+        }
+    }
+    
+    private int currentQuantity(String productId) {
+        return quantities(List.of(productId)).getOrDefault(productId, 0);
+    }
+    
+    private LedgerEntry append(String productId, String type, int value, ObjectId reverses) {
+        return mongoTemplate.insert(new LedgerEntry(new ObjectId(), productId, type, value, Instant.now(), reverses));
+    }
+    
+    private Inventory withQuantity(Inventory inventory, int quantity) {
+        inventory.setQuantity(quantity);
+        inventory.setStatus(inventoryStatus.of(quantity, inventory.getLowStockThreshold()));
+        return inventory;
+    }
+    
+    private String now() {
+        return LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME);
+    }
+}
@@ -0,0 +1,46 @@
+package com.velixa.inventory.ledger;
+
+import org.bson.types.ObjectId;
+
+import com.velixa.inventory.model.LedgerEntry;
+
+/**
+ * Running quantity of one product while its ledger entries are applied in
+ * {@code _id} order.
+ *
+ * A REVERSAL cancels one ADJUST. If a SET has been applied since that ADJUST,
+ * the SET already replaced its effect and the reversal is ignored; adding it
+ * back on top of the new absolute value would invent stock.
+ */
+final class StockFold {
+    
+    private int quantity;
+    private ObjectId lastSetId;
+    
+    StockFold(int quantity, ObjectId lastSetId) {
+        this.quantity = quantity;
+        this.lastSetId = lastSetId;
+    }
+    
+    void apply(LedgerEntry entry) {
+        if (LedgerEntry.SET.equals(entry.getType())) {
+            quantity = entry.getValue();
+            lastSetId = entry.getId();
+        } else if (!LedgerEntry.REVERSAL.equals(entry.getType()) || !supersededBySet(entry.getReverses())) {
+            quantity += entry.getValue();
+        }
+    }
+    
+    int quantity() {
+        return quantity;
+    }
+    
+    ObjectId lastSetId() {
+        return lastSetId;
+    }
+    
+    private boolean supersededBySet(ObjectId reversed) {
+        // Reversals written before they named their ADJUST always apply
+        return reversed != null && lastSetId != null && lastSetId.compareTo(reversed) > 0;
+    }
+}
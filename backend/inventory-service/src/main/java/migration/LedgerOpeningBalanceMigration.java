@@ -0,0 +1,95 @@
+package com.velixa.inventory.migration;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import com.velixa.inventory.model.Inventory;
+import com.velixa.inventory.model.InventorySnapshot;
+import com.velixa.inventory.model.LedgerEntry;
+
+/**
+ * Seeds an opening SET entry from {@code Inventory.quantity} for every
+ * product without ledger history, so turning ledger mode on over existing
+ * data keeps the stock it had instead of reading as zero.
+ *
+ * Opening entries get ObjectIds dated at the epoch, so they sort before any
+ * entry a live write appends while the migration runs. Seeding the same
+ * product twice, e.g. from two instances starting together, writes the same
+ * quantity twice and is harmless.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.ledger.enabled", havingValue = "true")
+public class LedgerOpeningBalanceMigration implements ApplicationRunner {
+    
+    private static final Logger log = LoggerFactory.getLogger(LedgerOpeningBalanceMigration.class);
+    
+    private static final Date OPENING = new Date(0);
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Value("${inventory.ledger.fold-batch-size:500}")
+    private int batchSize;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        Query all = new Query();
+        all.fields().include("productId").include("quantity");
+        long seeded = 0;
+        List<Inventory> batch = new ArrayList<>(batchSize);
+        try (Stream<Inventory> inventories = mongoTemplate.stream(all, Inventory.class)) {
+            for (Inventory inventory : (Iterable<Inventory>) inventories::iterator) {
+                batch.add(inventory);
+                if (batch.size() == batchSize) {
+                    seeded += seed(batch);
+                    batch.clear();
+                }
+            }
+        }
+        seeded += seed(batch);
+        if (seeded > 0) {
+            log.info("Seeded opening ledger balances for {} products", seeded);
+        }
+    }
+    
+    private int seed(List<Inventory> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<String> productIds = batch.stream().map(Inventory::getProductId).toList();
+        Query ofBatch = Query.query(Criteria.where("productId").in(productIds));
+        Set<String> withHistory = new HashSet<>(mongoTemplate.findDistinct(ofBatch, "productId", LedgerEntry.class, String.class));
+        mongoTemplate.find(ofBatch, InventorySnapshot.class).forEach(snapshot -> withHistory.add(snapshot.getProductId()));
+        
+        Instant now = Instant.now();
+        List<LedgerEntry> openings = new ArrayList<>();
+        for (Inventory inventory : batch) {
+            if (!withHistory.contains(inventory.getProductId())) {
+                openings.add(new LedgerEntry(new ObjectId(OPENING), inventory.getProductId(), LedgerEntry.SET,
+                        inventory.getQuantity(), now, null));
+            }
+        }
+        if (!openings.isEmpty()) {
+            mongoTemplate.insert(openings, LedgerEntry.class);
+        }
+        return openings.size();
+    }
+}
@@ -0,0 +1,53 @@
+package com.velixa.inventory.migration;
+
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.velixa.inventory.model.Inventory;
+import com.velixa.inventory.model.Reservation;
+
+/**
+ * Lists reservations held before inventory records tracked their holds on
+ * those records, so releasing or confirming them still moves the stock. Their
+ * quantity is already counted in {@code reserved}, so only the hold entry is
+ * added. Running it again, e.g. from a second instance, finds every hold
+ * already listed and changes nothing.
+ */
+@Component
+public class ReservationHoldsMigration implements ApplicationRunner {
+    
+    private static final Logger log = LoggerFactory.getLogger(ReservationHoldsMigration.class);
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        long listed = 0;
+        Query held = Query.query(Criteria.where("status").is(Reservation.HELD));
+        try (Stream<Reservation> reservations = mongoTemplate.stream(held, Reservation.class)) {
+            for (Reservation reservation : (Iterable<Reservation>) reservations::iterator) {
+                listed += mongoTemplate.updateFirst(
+                        Query.query(Criteria.where("productId").is(reservation.getProductId())
+                                .and("holds.id").ne(reservation.getId())),
+                        new Update().push("holds", new Document("id", reservation.getId())
+                                .append("quantity", reservation.getQuantity())),
+                        Inventory.class).getModifiedCount();
+            }
+        }
+        if (listed > 0) {
+            log.info("Listed {} existing reservation holds on their inventory records", listed);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.velixa.inventory.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import lombok.AllArgsConstructor;
@@ -8,6 +9,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Document(collection = "inventory")
+@CompoundIndex(name = "warehouse_status_quantity", def = "{'warehouseLocation': 1, 'status': 1, 'quantity': 1}")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -18,8 +20,12 @@ public class Inventory {
     
     private int quantity;
     
+    private int reserved; // held by active reservations, still part of quantity; each hold is also listed in the unmapped "holds" array
+    
     private String warehouseLocation;
     
+    private Integer lowStockThreshold; // null uses inventory.low-stock-threshold
+    
     private String status; // "IN_STOCK", "LOW_STOCK", "OUT_OF_STOCK"
     
     private String lastUpdated;
@@ -41,6 +47,14 @@ public class Inventory {
 		this.quantity = quantity;
 	}
 
+	public int getReserved() {
+		return reserved;
+	}
+
+	public void setReserved(int reserved) {
+		this.reserved = reserved;
+	}
+
 	public String getWarehouseLocation() {
 		return warehouseLocation;
 	}
@@ -49,6 +63,14 @@ public class Inventory {
 		this.warehouseLocation = warehouseLocation;
 	}
 
+	public Integer getLowStockThreshold() {
+		return lowStockThreshold;
+	}
+
+	public void setLowStockThreshold(Integer lowStockThreshold) {
+		this.lowStockThreshold = lowStockThreshold;
+	}
+
 	public String getStatus() {
 		return status;
 	}
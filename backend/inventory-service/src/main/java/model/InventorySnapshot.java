@@ -0,0 +1,33 @@
+package com.velixa.inventory.model;
+
+import java.time.Instant;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A product's quantity folded from its ledger up to and including
+ * {@code lastEntryId}.
+ */
+@Document(collection = "inventory_snapshots")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventorySnapshot {
+    
+    @Id
+    private String productId;
+    
+    private int quantity;
+    
+    private ObjectId lastEntryId;
+    
+    private ObjectId lastSetId; // newest SET folded in, so later reversals of older adjustments are ignored
+    
+    private Instant updatedAt;
+}
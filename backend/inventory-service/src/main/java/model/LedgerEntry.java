@@ -0,0 +1,46 @@
+package com.velixa.inventory.model;
+
+import java.time.Instant;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One immutable change to a product's stock. Entries are only ever inserted;
+ * the {@code _id} orders them.
+ */
+@Document(collection = "inventory_ledger")
+@CompoundIndex(name = "productId_id", def = "{'productId': 1, '_id': 1}")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerEntry {
+    
+    public static final String ADJUST = "ADJUST";
+    public static final String SET = "SET";
+    public static final String REVERSAL = "REVERSAL";
+    
+    @Id
+    @JsonSerialize(using = ToStringSerializer.class)
+    private ObjectId id;
+    
+    private String productId;
+    
+    private String type; // "ADJUST", "SET", "REVERSAL"
+    
+    private int value; // delta for ADJUST and REVERSAL, absolute quantity for SET
+    
+    private Instant createdAt;
+    
+    @JsonSerialize(using = ToStringSerializer.class)
+    private ObjectId reverses; // REVERSAL only: the ADJUST it cancels
+}
@@ -0,0 +1,58 @@
+package com.velixa.inventory.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A time-limited hold on stock. While {@code HELD}, its quantity is counted in
+ * {@link Inventory#getReserved()}; confirming takes it off the quantity on
+ * hand, releasing or expiring gives it back.
+ *
+ * The reservation is written as {@code PENDING} before the stock is held, and
+ * {@code stockPending} stays set from the moment it is resolved until the
+ * inventory record reflects that, so a crash between the two writes always
+ * leaves a record the sweeper can finish.
+ *
+ * {@code purgeAt} is only set once the hold is resolved, so the TTL index
+ * never removes a reservation whose stock is still held.
+ */
+@Document(collection = "inventory_reservations")
+@CompoundIndex(name = "status_expiresAt", def = "{'status': 1, 'expiresAt': 1}")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Reservation {
+    
+    public static final String PENDING = "PENDING";
+    public static final String HELD = "HELD";
+    public static final String CONFIRMED = "CONFIRMED";
+    public static final String RELEASED = "RELEASED";
+    public static final String EXPIRED = "EXPIRED";
+    
+    @Id
+    private String id;
+    
+    private String productId;
+    
+    private int quantity;
+    
+    private String status; // "PENDING", "HELD", "CONFIRMED", "RELEASED", "EXPIRED"
+    
+    private Instant createdAt;
+    
+    private Instant expiresAt;
+    
+    @Indexed(name = "purgeAt_ttl", expireAfter = "0s")
+    private Instant purgeAt;
+    
+    @Indexed(name = "stockPending", sparse = true)
+    private Boolean stockPending; // set while the inventory update for a resolved hold is outstanding
+}
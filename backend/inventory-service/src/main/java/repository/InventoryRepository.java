@@ -2,9 +2,11 @@ package com.velixa.inventory.repository;
 
 import java.util.Optional;
 
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import com.velixa.inventory.dto.WarehouseStockSummary;
 import com.velixa.inventory.model.Inventory;
 
 @Repository
@@ -33,4 +35,39 @@ public interface InventoryRepository extends MongoRepository<Inventory, String>
      * @return List of inventories in the specified location
      */
     java.util.List<Inventory> findByWarehouseLocation(String location);
+    
+    /**
+     * Find the stock levels of several products in a single query
+     * 
+     * @param productIds the IDs of the products to look up
+     * @return stock levels of the products that have an inventory record
+     */
+    java.util.List<StockLevel> findByProductIdIn(java.util.Collection<String> productIds);
+    
+    /**
+     * Find the full inventory records of several products in a single query
+     * 
+     * @param productIds the IDs of the products to look up
+     * @return inventories of the products that have one
+     */
+    java.util.List<Inventory> findAllByProductIdIn(java.util.Collection<String> productIds);
+    
+    /**
+     * Stock totals, SKU counts and SKU counts per status for every warehouse.
+     * The sort and projection only touch fields of the
+     * warehouse_status_quantity index, so the scan is covered by the index
+     * and never loads documents.
+     * 
+     * @return one summary per warehouse location, ordered by location
+     */
+    @Aggregation(pipeline = {
+        "{ '$sort': { 'warehouseLocation': 1, 'status': 1, 'quantity': 1 } }",
+        "{ '$project': { '_id': 0, 'warehouseLocation': 1, 'status': 1, 'quantity': 1 } }",
+        "{ '$group': { '_id': { 'warehouseLocation': '$warehouseLocation', 'status': '$status' }, 'skus': { '$sum': 1 }, 'quantity': { '$sum': '$quantity' } } }",
+        "{ '$group': { '_id': '$_id.warehouseLocation', 'totalQuantity': { '$sum': '$quantity' }, 'skuCount': { '$sum': '$skus' }, "
+                + "'statusCounts': { '$push': { 'k': { '$ifNull': ['$_id.status', 'UNKNOWN'] }, 'v': '$skus' } } } }",
+        "{ '$project': { '_id': 0, 'warehouseLocation': '$_id', 'totalQuantity': 1, 'skuCount': 1, 'statusCounts': { '$arrayToObject': '$statusCounts' } } }",
+        "{ '$sort': { 'warehouseLocation': 1 } }"
+    })
+    java.util.List<WarehouseStockSummary> summarizeByWarehouse();
 }
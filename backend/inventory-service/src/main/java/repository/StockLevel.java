@@ -0,0 +1,14 @@
+package com.velixa.inventory.repository;
+
+/**
+ * Projection of an inventory record down to its stock figures, so bulk
+ * checks do not load whole documents.
+ */
+public interface StockLevel {
+    
+    String getProductId();
+    
+    int getQuantity();
+    
+    int getReserved();
+}
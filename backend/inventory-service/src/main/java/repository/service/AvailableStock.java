@@ -0,0 +1,33 @@
+package com.velixa.inventory.service;
+
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import com.velixa.inventory.model.Inventory;
+
+/**
+ * Stock that can still be promised: the quantity on hand minus what active
+ * reservations hold.
+ */
+final class AvailableStock {
+    
+    private AvailableStock() {
+    }
+    
+    static int of(Inventory inventory) {
+        return inventory.getQuantity() - inventory.getReserved();
+    }
+    
+    /**
+     * Filter matching only while at least {@code quantity} is available, so a
+     * conditional update cannot promise held stock twice. Records written
+     * before reservations existed have no {@code reserved} field.
+     */
+    static Criteria atLeast(int quantity) {
+        return Criteria.expr(ComparisonOperators.valueOf(
+                ArithmeticOperators.valueOf("quantity").subtract(ConditionalOperators.ifNull("reserved").then(0)))
+                .greaterThanEqualToValue(quantity));
+    }
+}
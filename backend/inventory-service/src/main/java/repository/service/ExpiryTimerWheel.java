@@ -0,0 +1,83 @@
+package com.velixa.inventory.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hashed timer wheel for reservation deadlines. Scheduling is O(1) from any
+ * thread; {@link #advance(long)} must only be called from a single ticking
+ * thread and returns the IDs whose deadline has passed.
+ *
+ * Deadlines further out than one revolution stay in their bucket and are
+ * skipped until their round comes up.
+ */
+final class ExpiryTimerWheel {
+    
+    private final long tickMillis;
+    private final long startMillis;
+    private final int mask;
+    private final Queue<Entry>[] buckets;
+    private final Queue<Entry> overdue = new ConcurrentLinkedQueue<>();
+    private volatile long currentTick;
+    
+    @SuppressWarnings("unchecked")
+    ExpiryTimerWheel(long tickMillis, int size, long startMillis) {
+        if (size <= 0 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Timer wheel size must be a power of two: " + size);
+        }
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.mask = size - 1;
+        this.buckets = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+    
+    void schedule(String id, long deadlineMillis) {
+        // Round up so an entry never fires before its deadline
+        long deadlineTick = Math.floorDiv(deadlineMillis - startMillis + tickMillis - 1, tickMillis);
+        Entry entry = new Entry(id, deadlineTick);
+        if (deadlineTick <= currentTick) {
+            overdue.add(entry);
+        } else {
+            buckets[(int) (deadlineTick & mask)].add(entry);
+        }
+    }
+    
+    List<String> advance(long nowMillis) {
+        List<String> expired = new ArrayList<>();
+        for (Entry entry; (entry = overdue.poll()) != null;) {
+            expired.add(entry.id);
+        }
+        long targetTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+        // Never spin more than one revolution, however long the thread stalled
+        long tick = Math.max(currentTick, targetTick - mask - 1);
+        while (tick < targetTick) {
+            tick++;
+            Queue<Entry> bucket = buckets[(int) (tick & mask)];
+            for (Iterator<Entry> it = bucket.iterator(); it.hasNext();) {
+                Entry entry = it.next();
+                if (entry.deadlineTick <= targetTick) {
+                    it.remove();
+                    expired.add(entry.id);
+                }
+            }
+            currentTick = tick;
+        }
+        return expired;
+    }
+    
+    private static final class Entry {
+        private final String id;
+        private final long deadlineTick;
+        
+        private Entry(String id, long deadlineTick) {
+            this.id = id;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
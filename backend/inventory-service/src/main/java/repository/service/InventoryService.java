@@ -1,6 +1,14 @@
 package com.velixa.inventory.service;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+
+import com.velixa.inventory.dto.AvailabilityRequestItem;
+import com.velixa.inventory.dto.AvailabilityResult;
+import com.velixa.inventory.dto.InventoryBulkItem;
+import com.velixa.inventory.dto.InventoryBulkResult;
+import com.velixa.inventory.dto.WarehouseStockSummary;
 import com.velixa.inventory.model.Inventory;
 
 public interface InventoryService {
@@ -21,6 +29,38 @@ public interface InventoryService {
      */
     Inventory updateInventory(String productId, int quantity);
     
+    /**
+     * Atomically adds {@code delta} to the quantity of a product and
+     * recomputes its status in the same update. A negative delta is refused
+     * rather than taking the quantity below zero.
+     * 
+     * @param productId the ID of the product to adjust
+     * @param delta the amount to add, negative to remove stock
+     * @return Optional containing the updated inventory, empty if the product has no inventory record
+     * @throws com.velixa.inventory.exception.InsufficientStockException if the decrement exceeds the stock on hand
+     */
+    Optional<Inventory> adjustInventory(String productId, int delta);
+    
+    /**
+     * Sets the quantity, and optionally the warehouse location, of many
+     * products. Records are upserted in chunks of unordered bulk writes with
+     * the status computed server-side. If a product appears more than once,
+     * its last item wins.
+     * 
+     * @param items the stock levels to apply
+     * @return counts of received items and of matched, modified and upserted records
+     */
+    InventoryBulkResult bulkUpsert(List<InventoryBulkItem> items);
+    
+    /**
+     * Sets the low-stock threshold of a product and recomputes its status
+     * 
+     * @param productId the ID of the product to update
+     * @param lowStockThreshold the new threshold, null to fall back to the configured default
+     * @return Optional containing the updated inventory, empty if the product has no inventory record
+     */
+    Optional<Inventory> updateLowStockThreshold(String productId, Integer lowStockThreshold);
+    
     /**
      * Creates a new inventory record
      * 
@@ -45,4 +85,21 @@ public interface InventoryService {
      * @return true if the product is available in the required quantity
      */
     boolean isInStock(String productId, int requiredQuantity);
+    
+    /**
+     * Summarises stock per warehouse: total quantity, SKU count and SKUs per
+     * status. Cached briefly and evicted by every write through this service.
+     * 
+     * @return one summary per warehouse location
+     */
+    List<WarehouseStockSummary> getWarehouseSummaries();
+    
+    /**
+     * Checks availability for many products with a single query. Quantities
+     * requested for the same product more than once are added together.
+     * 
+     * @param items the product IDs and quantities to check
+     * @return availability per product ID, in request order
+     */
+    Map<String, AvailabilityResult> checkAvailability(List<AvailabilityRequestItem> items);
 }
@@ -2,13 +2,40 @@ package com.velixa.inventory.service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import com.mongodb.bulk.BulkWriteResult;
+import com.velixa.inventory.dto.AvailabilityRequestItem;
+import com.velixa.inventory.dto.AvailabilityResult;
+import com.velixa.inventory.dto.InventoryBulkItem;
+import com.velixa.inventory.dto.InventoryBulkResult;
+import com.velixa.inventory.dto.WarehouseStockSummary;
+import com.velixa.inventory.exception.InsufficientStockException;
+import com.velixa.inventory.hot.HotInventoryCounters;
+import com.velixa.inventory.ledger.InventoryLedger;
 import com.velixa.inventory.model.Inventory;
 import com.velixa.inventory.repository.InventoryRepository;
+import com.velixa.inventory.repository.StockLevel;
 
 import lombok.RequiredArgsConstructor;
 
@@ -16,57 +43,241 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class InventoryServiceImpl implements InventoryService {
     
+    private static final String WAREHOUSE_SUMMARIES = "warehouseSummaries";
+    
     @Autowired
     private InventoryRepository inventoryRepository;
     
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private InventoryStatus inventoryStatus;
+    
+    // Present only when inventory.hot-counters.enabled=true
+    @Autowired(required = false)
+    private HotInventoryCounters hotCounters;
+    
+    // Present only when inventory.ledger.enabled=true
+    @Autowired(required = false)
+    private InventoryLedger ledger;
+    
+    @Value("${inventory.availability.max-items:500}")
+    private int maxAvailabilityItems;
+    
+    @Value("${inventory.bulk.max-items:50000}")
+    private int maxBulkItems;
+    
+    @Value("${inventory.bulk.chunk-size:1000}")
+    private int bulkChunkSize;
+    
     @Override
     public Optional<Inventory> getInventoryByProductId(String productId) {
+        if (hotCounters != null) {
+            return hotCounters.get(productId);
+        }
+        if (ledger != null) {
+            return ledger.get(productId);
+        }
         return inventoryRepository.findByProductId(productId);
     }
     
     @Override
+    @CacheEvict(cacheNames = WAREHOUSE_SUMMARIES, allEntries = true)
     public Inventory updateInventory(String productId, int quantity) {
-        Inventory inventory = inventoryRepository.findByProductId(productId).orElse(new Inventory());
-        inventory.setProductId(productId);
-        inventory.setQuantity(quantity);
+        if (hotCounters != null) {
+            return hotCounters.set(productId, quantity);
+        }
+        if (ledger != null) {
+            return ledger.set(productId, quantity);
+        }
         
-        // Update status based on quantity
-        if (quantity <= 0) {
-            inventory.setStatus("OUT_OF_STOCK");
-        } else if (quantity < 10) {
-            inventory.setStatus("LOW_STOCK");
-        } else {
-            inventory.setStatus("IN_STOCK");
+        // Single upsert instead of read-modify-save, so concurrent writers cannot interleave.
+        // Status is derived server-side against the record's own threshold.
+        AggregationUpdate update = AggregationUpdate.update()
+                .set("quantity").toValue(quantity)
+                .set("lastUpdated").toValue(now())
+                .set("status").toValue(inventoryStatus.expression());
+        
+        return mongoTemplate.findAndModify(
+                Query.query(Criteria.where("productId").is(productId)),
+                update,
+                FindAndModifyOptions.options().returnNew(true).upsert(true),
+                Inventory.class);
+    }
+    
+    @Override
+    @CacheEvict(cacheNames = WAREHOUSE_SUMMARIES, allEntries = true)
+    public Optional<Inventory> adjustInventory(String productId, int delta) {
+        if (hotCounters != null) {
+            return hotCounters.adjust(productId, delta);
+        }
+        if (ledger != null) {
+            return ledger.adjust(productId, delta);
         }
         
-        // Set the last updated timestamp
-        inventory.setLastUpdated(LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME));
+        Criteria criteria = Criteria.where("productId").is(productId);
+        if (delta < 0) {
+            // Conditional decrement: the filter only matches while enough unheld stock is left
+            criteria = criteria.andOperator(AvailableStock.atLeast(-delta));
+        }
+        
+        // Pipeline update: the second stage sees the incremented quantity
+        AggregationUpdate update = AggregationUpdate.update()
+                .set("quantity").toValue(ArithmeticOperators.valueOf("quantity").add(delta))
+                .set("lastUpdated").toValue(now())
+                .set("status").toValue(inventoryStatus.expression());
         
-        return inventoryRepository.save(inventory);
+        Inventory adjusted = mongoTemplate.findAndModify(
+                Query.query(criteria),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                Inventory.class);
+        if (adjusted != null) {
+            return Optional.of(adjusted);
+        }
+        if (delta < 0 && inventoryRepository.existsById(productId)) {
+            throw new InsufficientStockException("Insufficient stock for product " + productId);
+        }
+        return Optional.empty();
     }
     
     @Override
+    @CacheEvict(cacheNames = WAREHOUSE_SUMMARIES, allEntries = true)
+    public InventoryBulkResult bulkUpsert(List<InventoryBulkItem> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("At least one item is required");
+        }
+        if (items.size() > maxBulkItems) {
+            throw new IllegalArgumentException("At most " + maxBulkItems + " items can be written at once");
+        }
+        
+        // Unordered writes give no ordering between duplicates, so collapse them up front
+        Map<String, InventoryBulkItem> latest = new LinkedHashMap<>();
+        for (InventoryBulkItem item : items) {
+            if (item.getProductId() == null || item.getProductId().isBlank()) {
+                throw new IllegalArgumentException("productId is required");
+            }
+            if (item.getQuantity() < 0) {
+                throw new IllegalArgumentException("quantity must not be negative for product " + item.getProductId());
+            }
+            latest.put(item.getProductId(), item);
+        }
+        
+        List<InventoryBulkItem> unique = new ArrayList<>(latest.values());
+        int matched = 0;
+        int modified = 0;
+        int upserted = 0;
+        for (int from = 0; from < unique.size(); from += bulkChunkSize) {
+            List<InventoryBulkItem> chunk = unique.subList(from, Math.min(from + bulkChunkSize, unique.size()));
+            BulkWriteResult result = writeChunk(chunk);
+            matched += result.getMatchedCount();
+            modified += result.getModifiedCount();
+            upserted += result.getUpserts().size();
+        }
+        return new InventoryBulkResult(items.size(), matched, modified, upserted);
+    }
+    
+    private BulkWriteResult writeChunk(List<InventoryBulkItem> chunk) {
+        String now = now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, Inventory.class);
+        for (InventoryBulkItem item : chunk) {
+            AggregationUpdate update = AggregationUpdate.update()
+                    .set("quantity").toValue(item.getQuantity())
+                    .set("lastUpdated").toValue(now);
+            if (item.getWarehouseLocation() != null) {
+                update.set("warehouseLocation").toValue(item.getWarehouseLocation());
+            }
+            update.set("status").toValue(inventoryStatus.expression());
+            bulk.upsert(Query.query(Criteria.where("productId").is(item.getProductId())), update);
+        }
+        
+        if (hotCounters == null && ledger == null) {
+            return bulk.execute();
+        }
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (InventoryBulkItem item : chunk) {
+            quantities.put(item.getProductId(), item.getQuantity());
+        }
+        if (ledger != null) {
+            ledger.recordSets(quantities);
+            return bulk.execute();
+        }
+        BulkWriteResult[] result = new BulkWriteResult[1];
+        hotCounters.overwrite(quantities, () -> result[0] = bulk.execute());
+        return result[0];
+    }
+    
+    @Override
+    @CacheEvict(cacheNames = WAREHOUSE_SUMMARIES, allEntries = true)
+    public Optional<Inventory> updateLowStockThreshold(String productId, Integer lowStockThreshold) {
+        if (lowStockThreshold != null && lowStockThreshold < 0) {
+            throw new IllegalArgumentException("lowStockThreshold must not be negative");
+        }
+        
+        AggregationUpdate update = lowStockThreshold == null
+                ? AggregationUpdate.update().unset("lowStockThreshold")
+                : AggregationUpdate.update().set("lowStockThreshold").toValue(lowStockThreshold);
+        update.set("lastUpdated").toValue(now())
+                .set("status").toValue(inventoryStatus.expression());
+        
+        Inventory updated = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("productId").is(productId)),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                Inventory.class);
+        if (updated != null && hotCounters != null) {
+            hotCounters.reset(updated);
+        }
+        if (updated != null && ledger != null) {
+            return ledger.get(productId);
+        }
+        return Optional.ofNullable(updated);
+    }
+    
+    @Override
+    @CacheEvict(cacheNames = WAREHOUSE_SUMMARIES, allEntries = true)
     public Inventory createInventory(Inventory inventory) {
         // Set default values if not provided
+        if (inventory.getProductId() == null) {
+            inventory.setProductId(new ObjectId().toHexString());
+        }
         if (inventory.getStatus() == null) {
-            if (inventory.getQuantity() <= 0) {
-                inventory.setStatus("OUT_OF_STOCK");
-            } else if (inventory.getQuantity() < 10) {
-                inventory.setStatus("LOW_STOCK");
-            } else {
-                inventory.setStatus("IN_STOCK");
-            }
+            inventory.setStatus(inventoryStatus.of(inventory.getQuantity(), inventory.getLowStockThreshold()));
         }
         
-        // Set the last updated timestamp
-        inventory.setLastUpdated(LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME));
+        // Upsert rather than save, so replacing a record keeps the stock held by open reservations
+        Update update = new Update()
+                .set("quantity", inventory.getQuantity())
+                .set("warehouseLocation", inventory.getWarehouseLocation())
+                .set("lowStockThreshold", inventory.getLowStockThreshold())
+                .set("status", inventory.getStatus())
+                .set("lastUpdated", now());
         
-        return inventoryRepository.save(inventory);
+        Inventory saved = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("productId").is(inventory.getProductId())),
+                update,
+                FindAndModifyOptions.options().returnNew(true).upsert(true),
+                Inventory.class);
+        if (hotCounters != null) {
+            hotCounters.reset(saved);
+        }
+        if (ledger != null) {
+            ledger.recordCreated(saved);
+        }
+        return saved;
     }
     
     @Override
+    @CacheEvict(cacheNames = WAREHOUSE_SUMMARIES, allEntries = true)
     public boolean deleteInventory(String productId) {
         if (inventoryRepository.findByProductId(productId).isPresent()) {
+            if (hotCounters != null) {
+                hotCounters.remove(productId);
+            }
+            if (ledger != null) {
+                ledger.remove(productId);
+            }
             inventoryRepository.deleteById(productId);
             return true;
         }
@@ -75,11 +286,64 @@ public class InventoryServiceImpl implements InventoryService {
     
     @Override
     public boolean isInStock(String productId, int requiredQuantity) {
+        if (hotCounters != null) {
+            return hotCounters.isInStock(productId, requiredQuantity);
+        }
+        if (ledger != null) {
+            return ledger.get(productId).map(inventory -> inventory.getQuantity() >= requiredQuantity).orElse(false);
+        }
         Optional<Inventory> inventoryOpt = inventoryRepository.findByProductId(productId);
         if (inventoryOpt.isPresent()) {
             Inventory inventory = inventoryOpt.get();
-            return inventory.getQuantity() >= requiredQuantity;
+            return AvailableStock.of(inventory) >= requiredQuantity;
         }
         return false;
     }
+    
+    @Override
+    @Cacheable(cacheNames = WAREHOUSE_SUMMARIES, key = "'all'")
+    public List<WarehouseStockSummary> getWarehouseSummaries() {
+        return inventoryRepository.summarizeByWarehouse();
+    }
+    
+    @Override
+    public Map<String, AvailabilityResult> checkAvailability(List<AvailabilityRequestItem> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("At least one item is required");
+        }
+        if (items.size() > maxAvailabilityItems) {
+            throw new IllegalArgumentException("At most " + maxAvailabilityItems + " items can be checked at once");
+        }
+        
+        Map<String, Integer> requested = new LinkedHashMap<>();
+        for (AvailabilityRequestItem item : items) {
+            requested.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        
+        Map<String, Integer> available = new LinkedHashMap<>();
+        if (hotCounters != null) {
+            // Counters not cached yet are loaded together with one $in query
+            available.putAll(hotCounters.quantities(requested.keySet()));
+        } else {
+            // One $in query, projected to the stock figures only
+            for (StockLevel level : inventoryRepository.findByProductIdIn(requested.keySet())) {
+                available.put(level.getProductId(), level.getQuantity() - level.getReserved());
+            }
+            if (ledger != null && !available.isEmpty()) {
+                Map<String, Integer> quantities = ledger.quantities(available.keySet());
+                available.replaceAll((productId, quantity) -> quantities.getOrDefault(productId, 0));
+            }
+        }
+        
+        Map<String, AvailabilityResult> results = new LinkedHashMap<>();
+        requested.forEach((productId, quantity) -> {
+            int onHand = available.getOrDefault(productId, 0);
+            results.put(productId, new AvailabilityResult(quantity, onHand, available.containsKey(productId) && onHand >= quantity));
+        });
+        return results;
+    }
+    
+    private String now() {
+        return LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME);
+    }
 }
@@ -0,0 +1,60 @@
+package com.velixa.inventory.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators.Switch.CaseOperator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Derives the stock status stored on each inventory record from its quantity
+ * and low-stock threshold. Records without their own
+ * {@code lowStockThreshold} use {@code inventory.low-stock-threshold}.
+ */
+@Component
+public class InventoryStatus {
+    
+    public static final String IN_STOCK = "IN_STOCK";
+    public static final String LOW_STOCK = "LOW_STOCK";
+    public static final String OUT_OF_STOCK = "OUT_OF_STOCK";
+    
+    /** Statuses that replenishment should hear about. */
+    public static final List<String> NEEDS_REPLENISHMENT = List.of(LOW_STOCK, OUT_OF_STOCK);
+    
+    @Value("${inventory.low-stock-threshold:10}")
+    private int defaultLowStockThreshold;
+    
+    /**
+     * Status for the given quantity
+     * 
+     * @param quantity the quantity on hand
+     * @param lowStockThreshold the product's own threshold, null for the default
+     * @return one of IN_STOCK, LOW_STOCK or OUT_OF_STOCK
+     */
+    public String of(int quantity, Integer lowStockThreshold) {
+        int threshold = lowStockThreshold != null ? lowStockThreshold : defaultLowStockThreshold;
+        if (quantity <= 0) {
+            return OUT_OF_STOCK;
+        } else if (quantity < threshold) {
+            return LOW_STOCK;
+        }
+        return IN_STOCK;
+    }
+    
+    /**
+     * Server-side equivalent of {@link #of(int, Integer)} over the document's
+     * own {@code quantity} and {@code lowStockThreshold}, for pipeline updates.
+     * 
+     * @return a $switch expression evaluating to the status
+     */
+    public ConditionalOperators.Switch expression() {
+        return ConditionalOperators.switchCases(
+                CaseOperator.when(ComparisonOperators.valueOf("quantity").lessThanEqualToValue(0)).then(OUT_OF_STOCK),
+                CaseOperator.when(ComparisonOperators.valueOf("quantity")
+                        .lessThan(ConditionalOperators.ifNull("lowStockThreshold").then(defaultLowStockThreshold)))
+                        .then(LOW_STOCK))
+                .defaultTo(IN_STOCK);
+    }
+}
@@ -0,0 +1,48 @@
+package com.velixa.inventory.service;
+
+import java.util.Optional;
+
+import com.velixa.inventory.model.Reservation;
+
+public interface ReservationService {
+    /**
+     * Holds stock for a product until the reservation is confirmed, released
+     * or expires. The hold is taken with a single conditional update, so two
+     * concurrent checkouts cannot both be promised the last units.
+     * 
+     * @param productId the ID of the product to reserve
+     * @param quantity the quantity to hold
+     * @param ttlSeconds how long to hold it, null for the configured default
+     * @return Optional containing the reservation, empty if the product has no inventory record
+     * @throws com.velixa.inventory.exception.InsufficientStockException if less than {@code quantity} is available
+     */
+    Optional<Reservation> reserve(String productId, int quantity, Long ttlSeconds);
+    
+    /**
+     * Retrieves a reservation by ID
+     * 
+     * @param reservationId the ID of the reservation
+     * @return Optional containing the reservation if found, empty otherwise
+     */
+    Optional<Reservation> getReservation(String reservationId);
+    
+    /**
+     * Confirms an active reservation, taking its quantity off the stock on hand
+     * 
+     * @param reservationId the ID of the reservation
+     * @return Optional containing the confirmed reservation, empty if not found
+     * @throws com.velixa.inventory.exception.ReservationStateException if the reservation is no longer held
+     */
+    Optional<Reservation> confirm(String reservationId);
+    
+    /**
+     * Releases an active reservation, returning its quantity to available
+     * stock. Releasing a reservation that was already released or has
+     * expired is a no-op.
+     * 
+     * @param reservationId the ID of the reservation
+     * @return Optional containing the reservation, empty if not found
+     * @throws com.velixa.inventory.exception.ReservationStateException if the reservation was confirmed
+     */
+    Optional<Reservation> release(String reservationId);
+}
@@ -0,0 +1,327 @@
+package com.velixa.inventory.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.velixa.inventory.exception.InsufficientStockException;
+import com.velixa.inventory.exception.ReservationStateException;
+import com.velixa.inventory.hot.HotInventoryCounters;
+import com.velixa.inventory.ledger.InventoryLedger;
+import com.velixa.inventory.model.Inventory;
+import com.velixa.inventory.model.Reservation;
+import com.velixa.inventory.repository.InventoryRepository;
+
+import jakarta.annotation.PostConstruct;
+
+@Service
+public class ReservationServiceImpl implements ReservationService {
+    
+    private static final Logger log = LoggerFactory.getLogger(ReservationServiceImpl.class);
+    
+    @Autowired
+    private InventoryRepository inventoryRepository;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private InventoryStatus inventoryStatus;
+    
+    @Autowired(required = false)
+    private HotInventoryCounters hotCounters;
+    
+    @Autowired(required = false)
+    private InventoryLedger ledger;
+    
+    @Value("${inventory.reservations.default-ttl-seconds:900}")
+    private long defaultTtlSeconds;
+    
+    @Value("${inventory.reservations.max-ttl-seconds:3600}")
+    private long maxTtlSeconds;
+    
+    @Value("${inventory.reservations.retention-seconds:86400}")
+    private long retentionSeconds;
+    
+    @Value("${inventory.reservations.expiry-batch-size:200}")
+    private int expiryBatchSize;
+    
+    @Value("${inventory.reservations.pending-grace-ms:60000}")
+    private long pendingGraceMillis;
+    
+    @Value("${inventory.reservations.wheel-tick-ms:1000}")
+    private long wheelTickMillis;
+    
+    @Value("${inventory.reservations.wheel-size:512}")
+    private int wheelSize;
+    
+    private ExpiryTimerWheel wheel;
+    
+    @PostConstruct
+    public void init() {
+        wheel = new ExpiryTimerWheel(wheelTickMillis, wheelSize, System.currentTimeMillis());
+    }
+    
+    @Override
+    public Optional<Reservation> reserve(String productId, int quantity, Long ttlSeconds) {
+        if (hotCounters != null || ledger != null) {
+            throw new ReservationStateException("Reservations are not available while hot counters or the ledger are enabled");
+        }
+        if (productId == null || productId.isBlank()) {
+            throw new IllegalArgumentException("productId is required");
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("quantity must be positive");
+        }
+        long ttl = ttlSeconds == null ? defaultTtlSeconds : ttlSeconds;
+        if (ttl <= 0 || ttl > maxTtlSeconds) {
+            throw new IllegalArgumentException("ttlSeconds must be between 1 and " + maxTtlSeconds);
+        }
+        
+        Instant now = Instant.now();
+        Reservation reservation = new Reservation(new ObjectId().toHexString(), productId, quantity,
+                Reservation.PENDING, now, now.plusSeconds(ttl), null, null);
+        // Recorded before the stock is held, so a crash in between leaves a record the sweeper can find
+        mongoTemplate.insert(reservation);
+        
+        // The filter only matches while enough unheld stock is left and this reservation holds none yet
+        Inventory held = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("productId").is(productId).and("holds.id").ne(reservation.getId())
+                        .andOperator(AvailableStock.atLeast(quantity))),
+                new Update().inc("reserved", quantity)
+                        .push("holds", new Document("id", reservation.getId()).append("quantity", quantity)),
+                Inventory.class);
+        if (held == null) {
+            mongoTemplate.remove(Query.query(Criteria.where("id").is(reservation.getId()).and("status").is(Reservation.PENDING)),
+                    Reservation.class);
+            if (inventoryRepository.existsById(productId)) {
+                throw new InsufficientStockException("Insufficient stock for product " + productId);
+            }
+            return Optional.empty();
+        }
+        
+        Reservation active = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(reservation.getId()).and("status").is(Reservation.PENDING)),
+                new Update().set("status", Reservation.HELD),
+                FindAndModifyOptions.options().returnNew(true), Reservation.class);
+        if (active == null) {
+            // The sweeper abandoned it while the hold was being taken, possibly before the hold existed
+            Reservation abandoned = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("id").is(reservation.getId())),
+                    new Update().set("stockPending", true),
+                    FindAndModifyOptions.options().returnNew(true), Reservation.class);
+            if (abandoned != null) {
+                settle(List.of(abandoned));
+            }
+            throw new ReservationStateException("Reservation " + reservation.getId() + " expired before it was held");
+        }
+        wheel.schedule(active.getId(), active.getExpiresAt().toEpochMilli());
+        return Optional.of(active);
+    }
+    
+    @Override
+    public Optional<Reservation> getReservation(String reservationId) {
+        return Optional.ofNullable(mongoTemplate.findById(reservationId, Reservation.class));
+    }
+    
+    @Override
+    public Optional<Reservation> confirm(String reservationId) {
+        Instant now = Instant.now();
+        Reservation confirmed = resolve(
+                Criteria.where("id").is(reservationId).and("status").is(Reservation.HELD).and("expiresAt").gt(now),
+                Reservation.CONFIRMED, now);
+        if (confirmed == null) {
+            return getReservation(reservationId).map(existing -> {
+                if (Reservation.HELD.equals(existing.getStatus())) {
+                    throw new ReservationStateException("Reservation " + reservationId + " has expired");
+                }
+                if (!Reservation.CONFIRMED.equals(existing.getStatus())) {
+                    throw new ReservationStateException("Reservation " + reservationId + " is " + existing.getStatus());
+                }
+                return existing;
+            });
+        }
+        
+        settle(List.of(confirmed));
+        return Optional.of(confirmed);
+    }
+    
+    @Override
+    public Optional<Reservation> release(String reservationId) {
+        Reservation released = resolve(
+                Criteria.where("id").is(reservationId).and("status").is(Reservation.HELD),
+                Reservation.RELEASED, Instant.now());
+        if (released == null) {
+            return getReservation(reservationId).map(existing -> {
+                if (Reservation.CONFIRMED.equals(existing.getStatus())) {
+                    throw new ReservationStateException("Reservation " + reservationId + " is already confirmed");
+                }
+                return existing;
+            });
+        }
+        settle(List.of(released));
+        return Optional.of(released);
+    }
+    
+    /**
+     * Releases reservations whose deadline the timer wheel reports as passed.
+     */
+    @Scheduled(fixedRateString = "${inventory.reservations.wheel-tick-ms:1000}")
+    public void expireDue() {
+        List<String> due = wheel.advance(System.currentTimeMillis());
+        for (int from = 0; from < due.size(); from += expiryBatchSize) {
+            expire(due.subList(from, Math.min(from + expiryBatchSize, due.size())));
+        }
+    }
+    
+    /**
+     * Catches holds the wheel does not know about: those created by other
+     * instances or before a restart. Also finishes what a crash interrupted:
+     * reservations stuck in {@code PENDING} are abandoned, and resolved ones
+     * whose inventory update never landed are settled again.
+     */
+    @Scheduled(initialDelayString = "${inventory.reservations.wheel-tick-ms:1000}",
+            fixedDelayString = "${inventory.reservations.sweep-interval-ms:60000}")
+    public void sweepExpired() {
+        int released;
+        do {
+            released = expire(idsMatching(Criteria.where("status").is(Reservation.HELD).and("expiresAt").lte(Instant.now())));
+        } while (released == expiryBatchSize);
+        
+        int abandoned;
+        do {
+            Instant now = Instant.now();
+            List<Reservation> stale = new ArrayList<>();
+            for (String reservationId : idsMatching(Criteria.where("status").is(Reservation.PENDING)
+                    .and("createdAt").lte(now.minusMillis(pendingGraceMillis)))) {
+                Reservation reservation = resolve(
+                        Criteria.where("id").is(reservationId).and("status").is(Reservation.PENDING),
+                        Reservation.EXPIRED, now);
+                if (reservation != null) {
+                    stale.add(reservation);
+                }
+            }
+            settle(stale);
+            abandoned = stale.size();
+            if (abandoned > 0) {
+                log.warn("Abandoned {} reservations left pending", abandoned);
+            }
+        } while (abandoned == expiryBatchSize);
+        
+        List<Reservation> unsettled;
+        do {
+            unsettled = mongoTemplate.find(Query.query(Criteria.where("stockPending").is(true)).limit(expiryBatchSize),
+                    Reservation.class);
+            settle(unsettled);
+        } while (unsettled.size() == expiryBatchSize);
+    }
+    
+    private List<String> idsMatching(Criteria criteria) {
+        Query query = Query.query(criteria).limit(expiryBatchSize);
+        query.fields().include("id");
+        List<String> ids = new ArrayList<>();
+        for (Reservation reservation : mongoTemplate.find(query, Reservation.class)) {
+            ids.add(reservation.getId());
+        }
+        return ids;
+    }
+    
+    private int expire(List<String> reservationIds) {
+        if (reservationIds.isEmpty()) {
+            return 0;
+        }
+        Instant now = Instant.now();
+        List<Reservation> expired = new ArrayList<>();
+        for (String reservationId : reservationIds) {
+            // Per-reservation transition so a concurrent confirm or release wins cleanly
+            Reservation reservation = resolve(
+                    Criteria.where("id").is(reservationId).and("status").is(Reservation.HELD).and("expiresAt").lte(now),
+                    Reservation.EXPIRED, now);
+            if (reservation != null) {
+                expired.add(reservation);
+            }
+        }
+        settle(expired);
+        if (!expired.isEmpty()) {
+            log.debug("Expired {} reservations", expired.size());
+        }
+        return expired.size();
+    }
+    
+    /**
+     * Marks the reservation resolved and its inventory update outstanding in
+     * one write; {@link #settle} clears the mark once the update has landed.
+     */
+    private Reservation resolve(Criteria criteria, String status, Instant now) {
+        Update update = new Update()
+                .set("status", status)
+                .set("stockPending", true)
+                .set("purgeAt", now.plus(Duration.ofSeconds(retentionSeconds)));
+        return mongoTemplate.findAndModify(Query.query(criteria), update,
+                FindAndModifyOptions.options().returnNew(true), Reservation.class);
+    }
+    
+    /**
+     * Applies resolved reservations to their inventory records. Each update
+     * only matches while the record still lists the reservation's hold and
+     * removes it, so settling the same reservation twice, from a retry, the
+     * sweeper or a concurrent request, moves the stock once.
+     */
+    private void settle(List<Reservation> reservations) {
+        if (reservations.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, Inventory.class);
+        List<String> ids = new ArrayList<>(reservations.size());
+        for (Reservation reservation : reservations) {
+            Query holding = Query.query(Criteria.where("productId").is(reservation.getProductId())
+                    .and("holds.id").is(reservation.getId()));
+            bulk.updateOne(holding, Reservation.CONFIRMED.equals(reservation.getStatus())
+                    ? confirmHold(reservation)
+                    : new Update().inc("reserved", -reservation.getQuantity())
+                            .pull("holds", new Document("id", reservation.getId())));
+            ids.add(reservation.getId());
+        }
+        bulk.execute();
+        mongoTemplate.updateMulti(Query.query(Criteria.where("id").in(ids)), new Update().unset("stockPending"), Reservation.class);
+    }
+    
+    /**
+     * The held units leave both the hold and the stock on hand.
+     */
+    private AggregationUpdate confirmHold(Reservation reservation) {
+        int quantity = reservation.getQuantity();
+        return AggregationUpdate.update()
+                .set("quantity").toValue(ArithmeticOperators.valueOf("quantity").subtract(quantity))
+                .set("reserved").toValue(ArithmeticOperators.valueOf(ConditionalOperators.ifNull("reserved").then(0)).subtract(quantity))
+                .set("holds").toValue(ArrayOperators.Filter.filter("holds").as("hold")
+                        .by(ComparisonOperators.valueOf("hold.id").notEqualToValue(reservation.getId())))
+                .set("lastUpdated").toValue(LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME))
+                .set("status").toValue(inventoryStatus.expression());
+    }
+}
@@ -0,0 +1,171 @@
+package com.velixa.inventory.stream;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.velixa.inventory.dto.LowStockEvent;
+import com.velixa.inventory.exception.StreamCapacityException;
+import com.velixa.inventory.model.Inventory;
+import com.velixa.inventory.service.InventoryStatus;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Pushes inventory records moving into LOW_STOCK or OUT_OF_STOCK to SSE
+ * subscribers by tailing a change stream on the inventory collection.
+ *
+ * The transition filter runs server-side, so only matching changes leave
+ * Mongo. Each event id is the change stream resume token; a client that
+ * reconnects with {@code Last-Event-ID} resumes right after the last event
+ * it saw, including across restarts of this service, for as long as the
+ * oplog still covers it. Change streams need a replica set.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.low-stock-stream.enabled", havingValue = "true")
+public class LowStockEventStream {
+    
+    private static final Logger log = LoggerFactory.getLogger(LowStockEventStream.class);
+    
+    private static final String EVENT_NAME = "low-stock";
+    
+    // Updates whose status field changed to a low value, or inserted/replaced low records
+    private static final List<Bson> TRANSITIONS = List.of(Aggregates.match(Filters.or(
+            Filters.and(
+                    Filters.eq("operationType", OperationType.UPDATE.getValue()),
+                    Filters.in("updateDescription.updatedFields.status", InventoryStatus.NEEDS_REPLENISHMENT)),
+            Filters.and(
+                    Filters.in("operationType", Arrays.asList(OperationType.INSERT.getValue(), OperationType.REPLACE.getValue())),
+                    Filters.in("fullDocument.status", InventoryStatus.NEEDS_REPLENISHMENT)))));
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Value("${inventory.low-stock-stream.max-subscribers:16}")
+    private int maxSubscribers;
+    
+    @Value("${inventory.low-stock-stream.heartbeat-ms:15000}")
+    private long heartbeatMillis;
+    
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "low-stock-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    /**
+     * Opens a subscription, resuming after {@code lastEventId} when given.
+     * Each subscriber gets its own change stream cursor so a slow client
+     * never holds back the others.
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            throw new StreamCapacityException("Too many low-stock subscribers, retry later");
+        }
+        
+        SseEmitter emitter = new SseEmitter(0L);
+        AtomicBoolean open = new AtomicBoolean(true);
+        emitter.onCompletion(() -> open.set(false));
+        emitter.onTimeout(() -> open.set(false));
+        emitter.onError(e -> open.set(false));
+        try {
+            executor.execute(() -> pump(emitter, open, lastEventId));
+        } catch (RuntimeException e) {
+            subscribers.decrementAndGet();
+            throw e;
+        }
+        return emitter;
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    private void pump(SseEmitter emitter, AtomicBoolean open, String lastEventId) {
+        ChangeStreamIterable<Document> stream = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Inventory.class))
+                .watch(TRANSITIONS)
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(heartbeatMillis, TimeUnit.MILLISECONDS);
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            stream = stream.resumeAfter(new BsonDocument("_data", new BsonString(lastEventId)));
+        }
+        
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+            while (open.get() && !Thread.currentThread().isInterrupted()) {
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                if (change == null) {
+                    // Idle: also how a disconnected client is noticed
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                    continue;
+                }
+                LowStockEvent event = toEvent(change);
+                if (event != null) {
+                    emitter.send(SseEmitter.event()
+                            .id(change.getResumeToken().getString("_data").getValue())
+                            .name(EVENT_NAME)
+                            .data(event));
+                }
+            }
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // Client went away
+        } catch (MongoException e) {
+            log.warn("Low-stock change stream failed", e);
+            emitter.completeWithError(e);
+        } finally {
+            subscribers.decrementAndGet();
+        }
+    }
+    
+    private static LowStockEvent toEvent(ChangeStreamDocument<Document> change) {
+        Document document = change.getFullDocument();
+        if (document == null) {
+            // Deleted before the lookup ran
+            return null;
+        }
+        // The looked-up document may be newer than the change; the status comes from the change itself
+        String status = document.getString("status");
+        if (change.getUpdateDescription() != null && change.getUpdateDescription().getUpdatedFields() != null) {
+            status = change.getUpdateDescription().getUpdatedFields().getString("status").getValue();
+        }
+        Number quantity = document.get("quantity", Number.class);
+        Number threshold = document.get("lowStockThreshold", Number.class);
+        return new LowStockEvent(
+                String.valueOf(document.get("_id")),
+                status,
+                quantity == null ? 0 : quantity.intValue(),
+                threshold == null ? null : threshold.intValue(),
+                document.getString("warehouseLocation"),
+                document.getString("lastUpdated"));
+    }
+}
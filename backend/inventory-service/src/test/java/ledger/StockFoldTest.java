@@ -0,0 +1,72 @@
+package com.velixa.inventory.ledger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import com.velixa.inventory.model.LedgerEntry;
+
+class StockFoldTest {
+    
+    @Test
+    void reversalCancelsItsAdjustment() {
+        LedgerEntry opening = entry(LedgerEntry.SET, 10, null);
+        LedgerEntry adjust = entry(LedgerEntry.ADJUST, -15, null);
+        
+        assertEquals(10, fold(new StockFold(0, null),
+                opening,
+                adjust,
+                entry(LedgerEntry.REVERSAL, 15, adjust.getId())));
+    }
+    
+    @Test
+    void reversalAfterInterleavedSetIsIgnored() {
+        LedgerEntry opening = entry(LedgerEntry.SET, 10, null);
+        LedgerEntry adjust = entry(LedgerEntry.ADJUST, -15, null);
+        
+        // The SET replaced the adjustment, so cancelling it again must not add 15 on top of 5
+        assertEquals(5, fold(new StockFold(0, null),
+                opening,
+                adjust,
+                entry(LedgerEntry.SET, 5, null),
+                entry(LedgerEntry.REVERSAL, 15, adjust.getId())));
+    }
+    
+    @Test
+    void reversalAfterSetFoldedIntoSnapshotIsIgnored() {
+        LedgerEntry opening = entry(LedgerEntry.SET, 10, null);
+        LedgerEntry adjust = entry(LedgerEntry.ADJUST, -15, null);
+        LedgerEntry set = entry(LedgerEntry.SET, 5, null);
+        StockFold snapshot = new StockFold(0, null);
+        fold(snapshot, opening, adjust, set);
+        
+        assertEquals(5, fold(new StockFold(snapshot.quantity(), snapshot.lastSetId()),
+                entry(LedgerEntry.REVERSAL, 15, adjust.getId())));
+    }
+    
+    @Test
+    void laterAdjustmentsStillApplyAroundAReversal() {
+        LedgerEntry opening = entry(LedgerEntry.SET, 10, null);
+        LedgerEntry adjust = entry(LedgerEntry.ADJUST, -15, null);
+        
+        assertEquals(7, fold(new StockFold(0, null),
+                opening,
+                adjust,
+                entry(LedgerEntry.ADJUST, -3, null),
+                entry(LedgerEntry.REVERSAL, 15, adjust.getId())));
+    }
+    
+    private static int fold(StockFold fold, LedgerEntry... entries) {
+        List.of(entries).forEach(fold::apply);
+        return fold.quantity();
+    }
+    
+    // Ids are taken in call order, which is the order the ledger would hold them in
+    private static LedgerEntry entry(String type, int value, ObjectId reverses) {
+        return new LedgerEntry(new ObjectId(), "p1", type, value, Instant.now(), reverses);
+    }
+}
@@ -0,0 +1,364 @@
+package com.velixa.order.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.bson.types.ObjectId;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.velixa.order.model.Order;
+
+/**
+ * One immutable archive file.
+ *
+ * Layout: an 8-byte header (magic, version), then deflate-compressed
+ * blocks of orders in {@code _id} order, each order its 12-byte id and a
+ * length-prefixed JSON record, then a sparse index with one 60-byte entry per block (first and
+ * last id, oldest and newest createdAt, offset and lengths), and a trailer
+ * with the index offset. A lookup binary-searches the index, inflates a
+ * single block straight from the memory-mapped file and parses only the
+ * record whose id matches.
+ *
+ * Orders changed in Mongo after they were copied are listed, as 12-byte
+ * ids, in a {@code .superseded} file beside the segment; their copies are
+ * skipped by every lookup.
+ */
+final class ArchiveSegment {
+
+    private static final int MAGIC = 0x56584F41; // "VXOA"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int ID_BYTES = 12;
+    private static final int INDEX_ENTRY_BYTES = 60;
+    private static final int TRAILER_BYTES = 12;
+    private static final String SUPERSEDED_SUFFIX = ".superseded";
+
+    private final Path path;
+    private final MappedByteBuffer data;
+    private final List<Block> blocks;
+    private final Set<ObjectId> superseded;
+
+    private ArchiveSegment(Path path, MappedByteBuffer data, List<Block> blocks, Set<ObjectId> superseded) {
+        this.path = path;
+        this.data = data;
+        this.blocks = blocks;
+        this.superseded = superseded;
+    }
+
+    static ArchiveSegment open(Path path) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES + TRAILER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a valid archive segment: " + path);
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        data.order(ByteOrder.BIG_ENDIAN);
+        int size = data.capacity();
+        if (data.getInt(0) != MAGIC || data.getInt(size - 4) != MAGIC) {
+            throw new IOException("Not a valid archive segment: " + path);
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Unsupported archive segment version " + data.getInt(4) + ": " + path);
+        }
+        long indexOffset = data.getLong(size - TRAILER_BYTES);
+        int count = data.getInt((int) indexOffset);
+        if (indexOffset + 4 + (long) count * INDEX_ENTRY_BYTES != size - TRAILER_BYTES) {
+            throw new IOException("Corrupt archive segment index: " + path);
+        }
+        List<Block> blocks = new ArrayList<>(count);
+        ByteBuffer index = data.slice((int) indexOffset + 4, count * INDEX_ENTRY_BYTES);
+        for (int i = 0; i < count; i++) {
+            blocks.add(Block.read(index));
+        }
+        return new ArchiveSegment(path, data, Collections.unmodifiableList(blocks), readSuperseded(path));
+    }
+
+    private static Set<ObjectId> readSuperseded(Path path) throws IOException {
+        Path file = supersededFile(path);
+        if (!Files.exists(file)) {
+            return Set.of();
+        }
+        byte[] raw = Files.readAllBytes(file);
+        if (raw.length % ID_BYTES != 0) {
+            throw new IOException("Corrupt superseded list: " + file);
+        }
+        Set<ObjectId> ids = new HashSet<>();
+        for (int i = 0; i < raw.length; i += ID_BYTES) {
+            ids.add(new ObjectId(Arrays.copyOfRange(raw, i, i + ID_BYTES)));
+        }
+        return Collections.unmodifiableSet(ids);
+    }
+
+    private static Path supersededFile(Path path) {
+        return path.resolveSibling(path.getFileName() + SUPERSEDED_SUFFIX);
+    }
+
+    /**
+     * Hides the copies of orders that changed after they were archived,
+     * recording them durably beside the segment
+     *
+     * @return this segment with those orders hidden
+     */
+    ArchiveSegment supersede(Collection<String> ids) throws IOException {
+        Set<ObjectId> all = new HashSet<>(superseded);
+        ids.forEach(id -> all.add(new ObjectId(id)));
+        ByteBuffer raw = ByteBuffer.allocate(all.size() * ID_BYTES);
+        all.forEach(id -> raw.put(id.toByteArray()));
+        Path target = supersededFile(path);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            raw.flip();
+            while (raw.hasRemaining()) {
+                channel.write(raw);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        return new ArchiveSegment(path, data, blocks, Collections.unmodifiableSet(all));
+    }
+
+    int orderCount() {
+        return blocks.stream().mapToInt(Block::orderCount).sum() - superseded.size();
+    }
+
+    Optional<Order> find(ObjectId id, ObjectReader json) throws IOException {
+        if (superseded.contains(id)) {
+            return Optional.empty();
+        }
+        // The first block whose last id is not below the one wanted
+        int low = 0;
+        int high = blocks.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (blocks.get(mid).lastId().compareTo(id) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (low == blocks.size() || blocks.get(low).firstId().compareTo(id) > 0) {
+            return Optional.empty();
+        }
+        byte[] raw = inflate(blocks.get(low));
+        byte[] wanted = id.toByteArray();
+        ByteBuffer records = ByteBuffer.wrap(raw);
+        while (records.hasRemaining()) {
+            int start = records.position();
+            int length = records.getInt(start + ID_BYTES);
+            int body = start + ID_BYTES + 4;
+            if (Arrays.equals(raw, start, start + ID_BYTES, wanted, 0, ID_BYTES)) {
+                return Optional.of(json.readValue(raw, body, length));
+            }
+            records.position(body + length);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Orders created in {@code [from, to)}, skipping blocks the index rules out
+     */
+    List<Order> findCreated(Instant from, Instant to, int limit, ObjectReader json) throws IOException {
+        List<Order> found = new ArrayList<>();
+        for (Block block : blocks) {
+            if (block.maxCreatedAt().isBefore(from) || !block.minCreatedAt().isBefore(to)) {
+                continue;
+            }
+            for (Order order : readBlock(block, json)) {
+                Instant createdAt = order.getCreatedAt();
+                if (!createdAt.isBefore(from) && createdAt.isBefore(to)
+                        && (superseded.isEmpty() || !superseded.contains(new ObjectId(order.getId())))) {
+                    found.add(order);
+                    if (found.size() == limit) {
+                        return found;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private List<Order> readBlock(Block block, ObjectReader json) throws IOException {
+        byte[] raw = inflate(block);
+        List<Order> orders = new ArrayList<>(block.orderCount());
+        ByteBuffer records = ByteBuffer.wrap(raw);
+        while (records.hasRemaining()) {
+            int length = records.position(records.position() + ID_BYTES).getInt();
+            orders.add(json.readValue(raw, records.position(), length));
+            records.position(records.position() + length);
+        }
+        return orders;
+    }
+
+    private byte[] inflate(Block block) throws IOException {
+        byte[] raw = new byte[block.rawLength()];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data.slice((int) block.offset(), block.compressedLength()));
+            int read = 0;
+            while (read < raw.length && !inflater.finished()) {
+                int n = inflater.inflate(raw, read, raw.length - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != raw.length) {
+                throw new IOException("Truncated block at " + block.offset() + " in " + path);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block at " + block.offset() + " in " + path, e);
+        } finally {
+            inflater.end();
+        }
+        return raw;
+    }
+
+    private record Block(ObjectId firstId, ObjectId lastId, Instant minCreatedAt, Instant maxCreatedAt,
+            long offset, int compressedLength, int rawLength, int orderCount) {
+
+        private static Block read(ByteBuffer index) {
+            byte[] first = new byte[ID_BYTES];
+            byte[] last = new byte[ID_BYTES];
+            index.get(first).get(last);
+            return new Block(new ObjectId(first), new ObjectId(last),
+                    Instant.ofEpochMilli(index.getLong()), Instant.ofEpochMilli(index.getLong()),
+                    index.getLong(), index.getInt(), index.getInt(), index.getInt());
+        }
+
+        private void write(ByteBuffer index) {
+            index.put(firstId.toByteArray()).put(lastId.toByteArray())
+                    .putLong(minCreatedAt.toEpochMilli()).putLong(maxCreatedAt.toEpochMilli())
+                    .putLong(offset).putInt(compressedLength).putInt(rawLength).putInt(orderCount);
+        }
+    }
+
+    /**
+     * An order as it was when copied into a segment
+     */
+    record Written(String id, Instant updatedAt) {
+    }
+
+    /**
+     * Writes a new segment to a temporary file; {@link #finish} makes it
+     * durable and moves it into place in one step, so a segment file is
+     * either complete or absent.
+     */
+    static final class Writer implements Closeable {
+
+        private final Path temp;
+        private final FileChannel channel;
+        private final ObjectWriter json;
+        private final Deflater deflater;
+        private final List<Block> blocks = new ArrayList<>();
+        private final List<Written> written = new ArrayList<>();
+        private long position;
+
+        Writer(Path temp, ObjectWriter json, int compressionLevel) throws IOException {
+            this.temp = temp;
+            this.json = json;
+            this.deflater = new Deflater(compressionLevel);
+            this.channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip());
+        }
+
+        /**
+         * Appends one block
+         *
+         * @param orders orders in ascending id order, all with ids above those already written
+         */
+        void writeBlock(List<Order> orders) throws IOException {
+            ByteBuffer raw = ByteBuffer.allocate(1024);
+            Instant min = null;
+            Instant max = null;
+            for (Order order : orders) {
+                byte[] record = json.writeValueAsBytes(order);
+                if (raw.remaining() < ID_BYTES + 4 + record.length) {
+                    raw = ByteBuffer.allocate(Math.max(raw.capacity() * 2, raw.position() + ID_BYTES + 4 + record.length))
+                            .put(raw.flip());
+                }
+                raw.put(new ObjectId(order.getId()).toByteArray()).putInt(record.length).put(record);
+                Instant createdAt = order.getCreatedAt();
+                min = min == null || createdAt.isBefore(min) ? createdAt : min;
+                max = max == null || createdAt.isAfter(max) ? createdAt : max;
+                written.add(new Written(order.getId(), order.getUpdatedAt()));
+            }
+            int rawLength = raw.position();
+
+            deflater.reset();
+            deflater.setInput(raw.flip());
+            deflater.finish();
+            ByteBuffer compressed = ByteBuffer.allocate(Math.max(64, rawLength / 2));
+            while (!deflater.finished()) {
+                if (!compressed.hasRemaining()) {
+                    compressed = ByteBuffer.allocate(compressed.capacity() * 2).put(compressed.flip());
+                }
+                deflater.deflate(compressed);
+            }
+            compressed.flip();
+
+            blocks.add(new Block(new ObjectId(orders.get(0).getId()), new ObjectId(orders.get(orders.size() - 1).getId()),
+                    min, max, position, compressed.remaining(), rawLength, orders.size()));
+            write(compressed);
+        }
+
+        long size() {
+            return position;
+        }
+
+        Path temp() {
+            return temp;
+        }
+
+        List<Written> written() {
+            return written;
+        }
+
+        ArchiveSegment finish(Path target) throws IOException {
+            long indexOffset = position;
+            ByteBuffer index = ByteBuffer.allocate(4 + blocks.size() * INDEX_ENTRY_BYTES + TRAILER_BYTES);
+            index.putInt(blocks.size());
+            blocks.forEach(block -> block.write(index));
+            index.putLong(indexOffset).putInt(MAGIC);
+            write(index.flip());
+            channel.force(true);
+            close();
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            return open(target);
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            channel.close();
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.velixa.order.archive;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.velixa.order.dto.ArchiveRunResult;
+import com.velixa.order.migration.OrderItemMigration;
+import com.velixa.order.model.Order;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Optional cold storage for old orders, so the {@code orders} collection
+ * only holds the recent working set.
+ *
+ * Each run moves orders created more than {@code order.archive.min-age-days}
+ * ago into new compressed segment files under {@code order.archive.dir}, and
+ * deletes them from Mongo only once their segment is on disk. Segments are
+ * never modified afterwards; they are memory-mapped and searched newest
+ * first. An order updated while a run copies it keeps its newer version in
+ * Mongo, and its copy in the segment is hidden. Archived orders can be read
+ * but no longer updated or deleted, and they stay counted in the rollups.
+ * Orders from before line items existed are priced on the way in; those
+ * product-service can't price yet are left in Mongo for a later run.
+ *
+ * The files are local, so archiving should run on one instance, or on
+ * instances sharing the directory. A crash after a segment is written but
+ * before its orders are deleted archives those orders again on the next
+ * run; lookups return whichever copy they meet first.
+ */
+@Component
+@ConditionalOnProperty(name = "order.archive.enabled", havingValue = "true")
+public class OrderArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderArchive.class);
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int DELETE_CHUNK = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private OrderItemMigration orderItemMigration;
+
+    @Value("${order.archive.dir:./data/order-archive}")
+    private String dir;
+
+    @Value("${order.archive.min-age-days:180}")
+    private long minAgeDays;
+
+    @Value("${order.archive.block-orders:256}")
+    private int blockOrders;
+
+    @Value("${order.archive.max-segment-bytes:268435456}")
+    private long maxSegmentBytes;
+
+    @Value("${order.archive.max-orders-per-run:100000}")
+    private int maxOrdersPerRun;
+
+    @Value("${order.archive.max-scan-results:1000}")
+    private int maxScanResults;
+
+    private final ObjectWriter jsonWriter;
+    private final ObjectReader jsonReader;
+
+    private final List<ArchiveSegment> segments = new CopyOnWriteArrayList<>(); // newest first
+    private final ReentrantLock runLock = new ReentrantLock();
+    private Path directory;
+    private long nextSequence = 1; // guarded by runLock
+
+    public OrderArchive() {
+        // A fixed format of its own, so segments stay readable whatever the web mapper is configured to do
+        JsonMapper mapper = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+        this.jsonWriter = mapper.writerFor(Order.class);
+        this.jsonReader = mapper.readerFor(Order.class);
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        directory = Paths.get(dir);
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    // A run that died before finishing its segment
+                    Files.delete(entry);
+                } else if (name.startsWith("segment-") && name.endsWith(SEGMENT_SUFFIX)) {
+                    files.add(entry);
+                }
+            }
+        }
+        files.sort(Comparator.comparing(Path::getFileName).reversed());
+        for (Path file : files) {
+            segments.add(ArchiveSegment.open(file));
+        }
+        if (!files.isEmpty()) {
+            String newest = files.get(0).getFileName().toString();
+            nextSequence = Long.parseLong(newest.substring("segment-".length(), newest.length() - SEGMENT_SUFFIX.length())) + 1;
+        }
+        log.info("Opened {} order archive segments holding {} orders in {}", segments.size(),
+                segments.stream().mapToLong(ArchiveSegment::orderCount).sum(), directory);
+    }
+
+    /**
+     * Orders created before this may be in the archive rather than in Mongo
+     */
+    public Instant horizon() {
+        return Instant.now().minus(Duration.ofDays(minAgeDays));
+    }
+
+    public Optional<Order> find(String id) {
+        if (!ObjectId.isValid(id)) {
+            return Optional.empty();
+        }
+        ObjectId objectId = new ObjectId(id);
+        try {
+            for (ArchiveSegment segment : segments) {
+                Optional<Order> order = segment.find(objectId, jsonReader);
+                if (order.isPresent()) {
+                    return order;
+                }
+            }
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the order archive", e);
+        }
+    }
+
+    /**
+     * Archived orders created in {@code [from, to)}, at most
+     * {@code order.archive.max-scan-results} of them
+     */
+    public List<Order> findCreated(Instant from, Instant to, int limit) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        int max = Math.min(limit, maxScanResults);
+        List<Order> found = new ArrayList<>();
+        try {
+            for (ArchiveSegment segment : segments) {
+                found.addAll(segment.findCreated(from, to, max - found.size(), jsonReader));
+                if (found.size() == max) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the order archive", e);
+        }
+        found.sort(Comparator.comparing(Order::getCreatedAt));
+        return found;
+    }
+
+    @Scheduled(fixedDelayString = "${order.archive.interval-ms:3600000}", initialDelayString = "${order.archive.initial-delay-ms:60000}")
+    public void scheduledRun() {
+        ArchiveRunResult result = run();
+        if (result.getArchived() > 0) {
+            log.info("Archived {} orders into {} segments", result.getArchived(), result.getSegments());
+        }
+    }
+
+    /**
+     * Archives up to {@code order.archive.max-orders-per-run} of the oldest
+     * eligible orders. Does nothing if a run is already in progress.
+     */
+    public ArchiveRunResult run() {
+        if (!runLock.tryLock()) {
+            return new ArchiveRunResult(0, 0);
+        }
+        try {
+            return archive(horizon());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Order archival failed", e);
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    private ArchiveRunResult archive(Instant cutoff) throws IOException {
+        Query eligible = Query.query(Criteria.where("createdAt").lt(cutoff))
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(maxOrdersPerRun);
+        long archived = 0;
+        int written = 0;
+        int postponed = 0;
+        ArchiveSegment.Writer writer = null;
+        List<Order> block = new ArrayList<>(blockOrders);
+        try (Stream<Order> orders = mongoTemplate.stream(eligible, Order.class)) {
+            for (Order order : (Iterable<Order>) orders::iterator) {
+                if (!ObjectId.isValid(order.getId())) {
+                    continue; // can't be placed in the id index; stays in Mongo
+                }
+                block.add(order);
+                if (block.size() < blockOrders) {
+                    continue;
+                }
+                postponed += upgrade(block);
+                if (block.isEmpty()) {
+                    continue;
+                }
+                if (writer == null) {
+                    writer = newWriter();
+                }
+                writeBlock(writer, block);
+                if (writer.size() >= maxSegmentBytes) {
+                    archived += seal(writer);
+                    written++;
+                    writer = null;
+                }
+            }
+            if (!block.isEmpty()) {
+                postponed += upgrade(block);
+            }
+            if (!block.isEmpty()) {
+                if (writer == null) {
+                    writer = newWriter();
+                }
+                writeBlock(writer, block);
+            }
+            if (writer != null) {
+                archived += seal(writer);
+                written++;
+                writer = null;
+            }
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+        if (postponed > 0) {
+            log.info("Left {} legacy orders in Mongo until product-service can price them", postponed);
+        }
+        return new ArchiveRunResult(archived, written);
+    }
+
+    private ArchiveSegment.Writer newWriter() throws IOException {
+        String name = String.format("segment-%012d", nextSequence++);
+        return new ArchiveSegment.Writer(directory.resolve(name + TEMP_SUFFIX), jsonWriter, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Gives legacy orders in the block their items. Archived orders can't be
+     * upgraded in place later, so any left without prices are dropped from
+     * the block and stay in Mongo for a later run.
+     *
+     * @return the number of orders dropped
+     */
+    private int upgrade(List<Order> block) {
+        Set<String> legacy = new HashSet<>();
+        for (Order order : block) {
+            if (order.getItems() == null) {
+                legacy.add(order.getId());
+            }
+        }
+        if (legacy.isEmpty()) {
+            return 0;
+        }
+        // Lookups are split to product-service's batch limit by ProductClient
+        orderItemMigration.upgrade(block);
+        int before = block.size();
+        block.removeIf(order -> legacy.contains(order.getId()) && unpriced(order));
+        return before - block.size();
+    }
+
+    private static boolean unpriced(Order order) {
+        return order.getItems() != null && order.getItems().stream().anyMatch(item -> item.getUnitPrice() == null);
+    }
+
+    private void writeBlock(ArchiveSegment.Writer writer, List<Order> block) throws IOException {
+        writer.writeBlock(block);
+        block.clear();
+    }
+
+    /**
+     * Makes the segment permanent and visible, then removes its orders from
+     * Mongo unless they changed after being copied, in which case the copy is
+     * hidden instead
+     *
+     * @return the number of orders removed from Mongo
+     */
+    private long seal(ArchiveSegment.Writer writer) throws IOException {
+        String name = writer.temp().getFileName().toString();
+        Path target = writer.temp().resolveSibling(name.substring(0, name.length() - TEMP_SUFFIX.length()) + SEGMENT_SUFFIX);
+        ArchiveSegment segment = writer.finish(target);
+        segments.add(0, segment);
+
+        List<ArchiveSegment.Written> written = writer.written();
+        long deleted = 0;
+        List<String> superseded = new ArrayList<>();
+        for (int from = 0; from < written.size(); from += DELETE_CHUNK) {
+            List<ArchiveSegment.Written> chunk = written.subList(from, Math.min(from + DELETE_CHUNK, written.size()));
+            // Only orders untouched since they were copied; a newer version stays in Mongo
+            List<Criteria> unchanged = new ArrayList<>(chunk.size());
+            List<String> ids = new ArrayList<>(chunk.size());
+            for (ArchiveSegment.Written order : chunk) {
+                unchanged.add(Criteria.where("id").is(order.id()).and("updatedAt").is(order.updatedAt()));
+                ids.add(order.id());
+            }
+            deleted += mongoTemplate.remove(Query.query(new Criteria().orOperator(unchanged)), Order.class)
+                    .getDeletedCount();
+            Query kept = Query.query(Criteria.where("id").in(ids));
+            kept.fields().include("id");
+            mongoTemplate.find(kept, Order.class).forEach(order -> superseded.add(order.getId()));
+        }
+        if (!superseded.isEmpty()) {
+            // Otherwise the stale copy would reappear once the newer order is deleted
+            segments.set(segments.indexOf(segment), segment.supersede(superseded));
+            log.info("{} orders changed while being archived and stay in Mongo", superseded.size());
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,299 @@
+package com.velixa.order.batch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.velixa.order.exception.DownstreamUnavailableException;
+import com.velixa.order.model.Order;
+import com.velixa.order.model.OrderEvent;
+import com.velixa.order.outbox.OrderOutbox;
+import com.velixa.order.service.OrderRollups;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Optional group-commit mode for new orders. The PENDING insert of each
+ * checkout is queued in a bounded buffer and a single writer thread flushes
+ * the queue as one unordered bulk insert once
+ * {@code order.group-commit.max-batch-size} orders are waiting or the
+ * oldest has waited {@code order.group-commit.max-delay-micros}, whichever
+ * comes first. The later CONFIRMED/FAILED update is still a single write.
+ *
+ * Ids are assigned before an order is queued, so every caller gets its own
+ * id back and a failed document only fails its own caller. With the outbox
+ * enabled a batch and its events are written in one transaction instead,
+ * so any failure fails the whole batch. When the buffer
+ * is full callers wait up to {@code order.group-commit.offer-timeout-ms}
+ * for room and are then turned away with a 503.
+ *
+ * Batch sizes, flush latency, time spent queued and the buffer depth are
+ * published under {@code orders.group_commit.*}.
+ */
+@Component
+@ConditionalOnProperty(name = "order.group-commit.enabled", havingValue = "true")
+public class OrderGroupCommit {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderGroupCommit.class);
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private OrderRollups orderRollups;
+
+    @Autowired(required = false)
+    private OrderOutbox outbox;
+
+    @Value("${order.group-commit.max-batch-size:64}")
+    private int maxBatchSize;
+
+    @Value("${order.group-commit.max-delay-micros:500}")
+    private long maxDelayMicros;
+
+    @Value("${order.group-commit.queue-capacity:4096}")
+    private int queueCapacity;
+
+    @Value("${order.group-commit.offer-timeout-ms:50}")
+    private long offerTimeoutMillis;
+
+    @Value("${order.group-commit.write-timeout-ms:2000}")
+    private long writeTimeoutMillis;
+
+    private BlockingQueue<PendingInsert> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    private DistributionSummary batchSizes;
+    private Timer flushes;
+    private Timer queued;
+    private Counter rejected;
+
+    @PostConstruct
+    public void start() {
+        if (maxBatchSize <= 0 || queueCapacity < maxBatchSize) {
+            throw new IllegalStateException("order.group-commit.queue-capacity must be at least max-batch-size, and both positive");
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        batchSizes = DistributionSummary.builder("orders.group_commit.batch.size")
+                .description("Orders written per bulk insert")
+                .register(meterRegistry);
+        flushes = Timer.builder("orders.group_commit.flush")
+                .description("Time to write one batch")
+                .register(meterRegistry);
+        queued = Timer.builder("orders.group_commit.queued")
+                .description("Time an order waited in the buffer before its batch was written")
+                .register(meterRegistry);
+        rejected = Counter.builder("orders.group_commit.rejected")
+                .description("Orders turned away because the buffer was full")
+                .register(meterRegistry);
+        Gauge.builder("orders.group_commit.queue.depth", queue, BlockingQueue::size)
+                .description("Orders waiting to be written")
+                .register(meterRegistry);
+
+        running = true;
+        writer = Thread.ofPlatform().name("order-group-commit").daemon().start(this::writeLoop);
+    }
+
+    /**
+     * Queues the order for the next batch and waits until it is written.
+     *
+     * @param order the order to insert
+     * @param event its outbox event, or null when the outbox is disabled
+     * @return the saved order, with its generated id
+     * @throws DownstreamUnavailableException if the buffer stays full, or the write fails or times out
+     */
+    public Order insert(Order order, OrderEvent event) {
+        if (order.getId() == null) {
+            order.setId(new ObjectId().toHexString());
+        }
+        PendingInsert pending = new PendingInsert(order, event);
+        try {
+            if (!running || !queue.offer(pending, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new DownstreamUnavailableException("Order write buffer is full, try again");
+            }
+            return pending.done.get(writeTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DownstreamUnavailableException("Interrupted waiting for order " + order.getId() + " to be written", e);
+        } catch (TimeoutException e) {
+            throw new DownstreamUnavailableException("Timed out waiting for order " + order.getId() + " to be written", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new DownstreamUnavailableException("Order write failed", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Not interrupted: that could abort a bulk insert already on the wire
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        // Whatever was accepted but not yet written
+        List<PendingInsert> rest = new ArrayList<>();
+        while (queue.drainTo(rest, maxBatchSize) > 0) {
+            write(rest);
+            rest.clear();
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingInsert> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                PendingInsert first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Fill the batch until it is full or its oldest order has waited long enough
+                long deadline = first.enqueuedAt + TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingInsert next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingInsert> batch) {
+        long flushStart = System.nanoTime();
+        for (PendingInsert pending : batch) {
+            queued.record(flushStart - pending.enqueuedAt, TimeUnit.NANOSECONDS);
+        }
+        List<Order> orders = new ArrayList<>(batch.size());
+        List<OrderEvent> events = new ArrayList<>();
+        for (PendingInsert pending : batch) {
+            orders.add(pending.order);
+            if (pending.event != null) {
+                events.add(pending.event);
+            }
+        }
+        try {
+            if (outbox != null && !events.isEmpty()) {
+                // All or nothing: a failure rolls back the whole batch and its events
+                outbox.inTransaction(() -> {
+                    mongoTemplate.bulkOps(BulkMode.UNORDERED, Order.class).insert(orders).execute();
+                    outbox.append(events);
+                    orderRollups.created(orders);
+                    return null;
+                });
+                batch.forEach(pending -> pending.done.complete(pending.order));
+            } else {
+                insertIndependently(batch, orders);
+            }
+        } catch (RuntimeException e) {
+            failAll(batch, e);
+        } finally {
+            flushes.record(System.nanoTime() - flushStart, TimeUnit.NANOSECONDS);
+            batchSizes.record(batch.size());
+        }
+    }
+
+    private void insertIndependently(List<PendingInsert> batch, List<Order> orders) {
+        try {
+            mongoTemplate.bulkOps(BulkMode.UNORDERED, Order.class).insert(orders).execute();
+            batch.forEach(pending -> pending.done.complete(pending.order));
+            updateRollups(orders);
+        } catch (BulkOperationException e) {
+            Map<Integer, BulkWriteError> failed = new HashMap<>();
+            for (BulkWriteError error : e.getErrors()) {
+                failed.put(error.getIndex(), error);
+            }
+            if (failed.isEmpty()) {
+                // e.g. a write concern error: the outcome of each insert is unknown
+                throw e;
+            }
+            log.warn("{} of {} orders in a batch failed to insert", failed.size(), batch.size());
+            List<Order> written = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                BulkWriteError error = failed.get(i);
+                if (error == null) {
+                    batch.get(i).done.complete(batch.get(i).order);
+                    written.add(batch.get(i).order);
+                } else {
+                    batch.get(i).done.completeExceptionally(
+                            new DownstreamUnavailableException("Order write failed: " + error.getMessage()));
+                }
+            }
+            updateRollups(written);
+        }
+    }
+
+    private void updateRollups(List<Order> written) {
+        try {
+            orderRollups.created(written);
+        } catch (RuntimeException e) {
+            // The orders themselves are saved; a rollup rebuild repairs the counts
+            log.warn("Could not update order rollups for {} orders", written.size(), e);
+        }
+    }
+
+    private static void failAll(List<PendingInsert> batch, RuntimeException cause) {
+        log.warn("Failed to write a batch of {} orders", batch.size(), cause);
+        DownstreamUnavailableException failure = new DownstreamUnavailableException("Order write failed", cause);
+        batch.forEach(pending -> pending.done.completeExceptionally(failure));
+    }
+
+    private static final class PendingInsert {
+        private final Order order;
+        private final OrderEvent event;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<Order> done = new CompletableFuture<>();
+
+        private PendingInsert(Order order, OrderEvent event) {
+            this.order = order;
+            this.event = event;
+        }
+    }
+}
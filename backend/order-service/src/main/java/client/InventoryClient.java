@@ -0,0 +1,85 @@
+package com.velixa.order.client;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import com.velixa.order.dto.StockReservation;
+import com.velixa.order.exception.DownstreamUnavailableException;
+import com.velixa.order.exception.InsufficientStockException;
+
+@Component
+public class InventoryClient {
+
+    @Autowired
+    @Qualifier("inventoryRestClient")
+    private RestClient inventoryRestClient;
+
+    /**
+     * Holds stock for a product in inventory-service
+     * 
+     * @param productId the ID of the product
+     * @param quantity the quantity to hold
+     * @param ttlSeconds how long inventory-service keeps the hold
+     * @return the reservation
+     * @throws InsufficientStockException if the product has no inventory or not enough is available
+     * @throws DownstreamUnavailableException if inventory-service fails or times out
+     */
+    public StockReservation reserve(String productId, int quantity, long ttlSeconds) {
+        try {
+            return inventoryRestClient.post()
+                    .uri("/api/inventory/reservations")
+                    .body(Map.of("productId", productId, "quantity", quantity, "ttlSeconds", ttlSeconds))
+                    .retrieve()
+                    .onStatus(status -> status.isSameCodeAs(HttpStatus.CONFLICT) || status.isSameCodeAs(HttpStatus.NOT_FOUND),
+                            (request, response) -> {
+                                throw new InsufficientStockException("Insufficient stock for product " + productId);
+                            })
+                    .body(StockReservation.class);
+        } catch (RestClientException e) {
+            throw new DownstreamUnavailableException("inventory-service reservation failed for product " + productId, e);
+        }
+    }
+
+    public StockReservation confirm(String reservationId) {
+        return transition(reservationId, "confirm");
+    }
+
+    public StockReservation release(String reservationId) {
+        return transition(reservationId, "release");
+    }
+
+    /**
+     * Puts stock back on hand, e.g. for a confirmed hold whose order then failed
+     * 
+     * @param productId the ID of the product
+     * @param quantity the quantity to add back
+     * @throws DownstreamUnavailableException if inventory-service fails or times out
+     */
+    public void restock(String productId, int quantity) {
+        try {
+            inventoryRestClient.patch()
+                    .uri("/api/inventory/{productId}/adjust?delta={delta}", productId, quantity)
+                    .retrieve()
+                    .toBodilessEntity();
+        } catch (RestClientException e) {
+            throw new DownstreamUnavailableException("inventory-service could not restock product " + productId, e);
+        }
+    }
+
+    private StockReservation transition(String reservationId, String action) {
+        try {
+            return inventoryRestClient.post()
+                    .uri("/api/inventory/reservations/{id}/{action}", reservationId, action)
+                    .retrieve()
+                    .body(StockReservation.class);
+        } catch (RestClientException e) {
+            throw new DownstreamUnavailableException("inventory-service could not " + action + " reservation " + reservationId, e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.velixa.order.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import com.velixa.order.dto.ProductBatchResult;
+import com.velixa.order.exception.DownstreamUnavailableException;
+
+@Component
+public class ProductClient {
+
+    @Autowired
+    @Qualifier("productRestClient")
+    private RestClient productRestClient;
+
+    // Must not exceed product-service's product.batch.max-ids
+    @Value("${order.clients.product.max-batch-ids:100}")
+    private int maxBatchIds;
+
+    /**
+     * Looks up several products, with one batch call per
+     * {@code order.clients.product.max-batch-ids} distinct IDs
+     * 
+     * @param productIds the IDs to look up
+     * @return the products found and the IDs that were not
+     * @throws IllegalArgumentException if product-service rejects a batch as invalid
+     * @throws DownstreamUnavailableException if product-service fails or times out
+     */
+    public ProductBatchResult getProducts(Collection<String> productIds) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(productIds));
+        if (distinct.size() <= maxBatchIds) {
+            return getBatch(distinct);
+        }
+        ProductBatchResult merged = new ProductBatchResult(new ArrayList<>(), new ArrayList<>());
+        for (int from = 0; from < distinct.size(); from += maxBatchIds) {
+            ProductBatchResult batch = getBatch(distinct.subList(from, Math.min(from + maxBatchIds, distinct.size())));
+            if (batch.getProducts() != null) {
+                merged.getProducts().addAll(batch.getProducts());
+            }
+            if (batch.getMissingIds() != null) {
+                merged.getMissingIds().addAll(batch.getMissingIds());
+            }
+        }
+        return merged;
+    }
+
+    private ProductBatchResult getBatch(List<String> productIds) {
+        try {
+            return productRestClient.post()
+                    .uri("/api/products/batch")
+                    .body(Map.of("ids", productIds))
+                    .retrieve()
+                    .onStatus(status -> status.isSameCodeAs(HttpStatus.BAD_REQUEST),
+                            (request, response) -> {
+                                throw new IllegalArgumentException("product-service rejected a lookup of " + productIds.size() + " products");
+                            })
+                    .body(ProductBatchResult.class);
+        } catch (RestClientException e) {
+            throw new DownstreamUnavailableException("product-service lookup failed", e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.velixa.order.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Mongo transactions for the order outbox, so an order and its event are
+ * written together. Transactions need a replica set, which is why the
+ * outbox is off by default.
+ */
+@Configuration
+@ConditionalOnProperty(name = "order.outbox.enabled", havingValue = "true")
+public class OutboxConfig {
+
+    @Bean
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory databaseFactory) {
+        return new MongoTransactionManager(databaseFactory);
+    }
+
+    @Bean
+    public TransactionTemplate transactionTemplate(MongoTransactionManager transactionManager) {
+        return new TransactionTemplate(transactionManager);
+    }
+}
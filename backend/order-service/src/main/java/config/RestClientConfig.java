@@ -0,0 +1,49 @@
+package com.velixa.order.config;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+/**
+ * HTTP clients for the services checkout calls. Both share one JDK
+ * HttpClient that runs on virtual threads, with connect and read timeouts
+ * so no single downstream call can hold a checkout indefinitely.
+ */
+@Configuration
+public class RestClientConfig {
+
+    @Value("${order.clients.connect-timeout-ms:500}")
+    private long connectTimeoutMillis;
+
+    @Value("${order.clients.read-timeout-ms:2000}")
+    private long readTimeoutMillis;
+
+    @Bean
+    public JdkClientHttpRequestFactory downstreamRequestFactory() {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMillis));
+        return factory;
+    }
+
+    @Bean
+    public RestClient productRestClient(RestClient.Builder builder, JdkClientHttpRequestFactory downstreamRequestFactory,
+            @Value("${order.clients.product.base-url}") String baseUrl) {
+        return builder.baseUrl(baseUrl).requestFactory(downstreamRequestFactory).build();
+    }
+
+    @Bean
+    public RestClient inventoryRestClient(RestClient.Builder builder, JdkClientHttpRequestFactory downstreamRequestFactory,
+            @Value("${order.clients.inventory.base-url}") String baseUrl) {
+        return builder.baseUrl(baseUrl).requestFactory(downstreamRequestFactory).build();
+    }
+}
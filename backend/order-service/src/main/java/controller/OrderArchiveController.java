@@ -0,0 +1,40 @@
+package com.velixa.order.controller;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.velixa.order.archive.OrderArchive;
+import com.velixa.order.dto.ArchiveRunResult;
+import com.velixa.order.model.Order;
+
+@RestController
+@RequestMapping("/api/orders/archive")
+@ConditionalOnProperty(name = "order.archive.enabled", havingValue = "true")
+public class OrderArchiveController {
+
+    @Autowired
+    private OrderArchive orderArchive;
+
+    @GetMapping
+    public ResponseEntity<List<Order>> findArchived(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(orderArchive.findCreated(from, to, limit));
+    }
+
+    @PostMapping("/runs")
+    public ResponseEntity<ArchiveRunResult> run() {
+        return ResponseEntity.ok(orderArchive.run());
+    }
+}
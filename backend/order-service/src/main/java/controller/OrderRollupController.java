@@ -0,0 +1,41 @@
+package com.velixa.order.controller;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.velixa.order.dto.RollupRebuildResult;
+import com.velixa.order.model.OrderRollup;
+import com.velixa.order.service.OrderRollups;
+
+@RestController
+@RequestMapping("/api/orders/rollups")
+public class OrderRollupController {
+
+    @Autowired
+    private OrderRollups orderRollups;
+
+    @GetMapping
+    public ResponseEntity<List<OrderRollup>> getRollups(
+            @RequestParam(defaultValue = OrderRollup.DAY) String granularity,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) String status) {
+        return ResponseEntity.ok(orderRollups.find(granularity, from, to, status));
+    }
+
+    @PostMapping("/rebuild")
+    public ResponseEntity<RollupRebuildResult> rebuild(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        return ResponseEntity.ok(new RollupRebuildResult(orderRollups.rebuild(from, to)));
+    }
+}
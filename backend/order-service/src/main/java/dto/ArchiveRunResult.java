@@ -0,0 +1,13 @@
+package com.velixa.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchiveRunResult {
+    private long archived; // orders moved out of Mongo
+    private int segments; // segment files written
+}
@@ -0,0 +1,15 @@
+package com.velixa.order.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutRequest {
+    private String userId;
+    private List<String> productIds; // a product listed n times is ordered n times
+}
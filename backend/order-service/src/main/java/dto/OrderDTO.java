@@ -1,19 +1,21 @@
 package com.velixa.order.dto;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
 import java.util.List;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class OrderDTO {
     private String id;
     private String userId;
     private List<String> productIds;
+    private List<OrderItemDTO> items;
     private Double totalPrice;
+    private String status;
+    private Instant createdAt;
     
     
 	public OrderDTO(String id, String userId, List<String> productIds, Double totalPrice) {
@@ -41,6 +43,24 @@ public class OrderDTO {
 	public void setProductIds(List<String> productIds) {
 		this.productIds = productIds;
 	}
+	public List<OrderItemDTO> getItems() {
+		return items;
+	}
+	public void setItems(List<OrderItemDTO> items) {
+		this.items = items;
+	}
+	public String getStatus() {
+		return status;
+	}
+	public void setStatus(String status) {
+		this.status = status;
+	}
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+	public void setCreatedAt(Instant createdAt) {
+		this.createdAt = createdAt;
+	}
 	public Double getTotalPrice() {
 		return totalPrice;
 	}
@@ -0,0 +1,17 @@
+package com.velixa.order.dto;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderItemDTO {
+    private String productId;
+    private String name;
+    private int quantity;
+    private BigDecimal unitPrice;
+}
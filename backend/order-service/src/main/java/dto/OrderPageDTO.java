@@ -0,0 +1,19 @@
+package com.velixa.order.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of a user's order history, newest first. {@code nextCursor} is an
+ * opaque token to pass back as {@code cursor}; it is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPageDTO {
+    private List<OrderDTO> items;
+    private String nextCursor;
+}
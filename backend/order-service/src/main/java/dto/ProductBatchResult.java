@@ -0,0 +1,21 @@
+package com.velixa.order.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response of product-service {@code POST /api/products/batch}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ProductBatchResult {
+    private List<ProductSummary> products;
+    private List<String> missingIds;
+}
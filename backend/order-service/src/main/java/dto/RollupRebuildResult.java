@@ -0,0 +1,12 @@
+package com.velixa.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupRebuildResult {
+    private long rollups; // rollup documents in the rebuilt range
+}
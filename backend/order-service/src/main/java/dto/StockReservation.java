@@ -0,0 +1,22 @@
+package com.velixa.order.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A stock hold taken through inventory-service
+ * {@code POST /api/inventory/reservations}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class StockReservation {
+    private String id;
+    private String productId;
+    private int quantity;
+    private String status;
+}
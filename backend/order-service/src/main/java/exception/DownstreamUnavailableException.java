@@ -0,0 +1,13 @@
+package com.velixa.order.exception;
+
+public class DownstreamUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+	public DownstreamUnavailableException(String message) {
+        super(message);
+    }
+
+	public DownstreamUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,60 @@
+package com.velixa.order.exception;
+
+import java.time.LocalDateTime;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+	@ExceptionHandler(IllegalArgumentException.class)
+	public ResponseEntity<ErrorResponse> handleBadRequest(IllegalArgumentException ex) {
+	    ErrorResponse error = new ErrorResponse(
+	            "FAILED",
+	            HttpStatus.BAD_REQUEST.value(),
+	            ex.getMessage(),
+	            LocalDateTime.now()
+	    );
+	    return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+	}
+
+
+	@ExceptionHandler(InsufficientStockException.class)
+	public ResponseEntity<ErrorResponse> handleInsufficientStock(InsufficientStockException ex) {
+	    ErrorResponse error = new ErrorResponse(
+	            "FAILED",
+	            HttpStatus.CONFLICT.value(),
+	            ex.getMessage(),
+	            LocalDateTime.now()
+	    );
+	    return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+	}
+
+
+	@ExceptionHandler(IdempotencyConflictException.class)
+	public ResponseEntity<ErrorResponse> handleIdempotencyConflict(IdempotencyConflictException ex) {
+	    ErrorResponse error = new ErrorResponse(
+	            "FAILED",
+	            HttpStatus.CONFLICT.value(),
+	            ex.getMessage(),
+	            LocalDateTime.now()
+	    );
+	    return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+	}
+
+
+	@ExceptionHandler(DownstreamUnavailableException.class)
+	public ResponseEntity<ErrorResponse> handleDownstreamUnavailable(DownstreamUnavailableException ex) {
+	    ErrorResponse error = new ErrorResponse(
+	            "FAILED",
+	            HttpStatus.SERVICE_UNAVAILABLE.value(),
+	            ex.getMessage(),
+	            LocalDateTime.now()
+	    );
+	    return new ResponseEntity<>(error, HttpStatus.SERVICE_UNAVAILABLE);
+	}
+
+}
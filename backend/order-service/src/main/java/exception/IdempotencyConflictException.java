@@ -0,0 +1,9 @@
+package com.velixa.order.exception;
+
+public class IdempotencyConflictException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+	public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
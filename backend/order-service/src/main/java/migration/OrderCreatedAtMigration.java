@@ -0,0 +1,41 @@
+package com.velixa.order.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.client.result.UpdateResult;
+import com.velixa.order.model.Order;
+
+/**
+ * Backfills {@code createdAt} on orders saved before it was populated, from
+ * the creation time embedded in their ObjectId, so they appear in order
+ * history in the right place.
+ */
+@Component
+public class OrderCreatedAtMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderCreatedAtMigration.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        UpdateResult result = mongoTemplate.updateMulti(
+                new Query(Criteria.where("createdAt").exists(false)),
+                AggregationUpdate.update().set("createdAt").toValue(ConvertOperators.valueOf("_id").convertToDate()),
+                Order.class);
+        if (result.getModifiedCount() > 0) {
+            log.info("Backfilled createdAt on {} orders", result.getModifiedCount());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.velixa.order.migration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.velixa.order.client.ProductClient;
+import com.velixa.order.dto.ProductSummary;
+import com.velixa.order.exception.DownstreamUnavailableException;
+import com.velixa.order.model.Order;
+import com.velixa.order.model.OrderItem;
+
+/**
+ * Gives orders saved before line items existed their {@code items} the
+ * first time they are read. Repeated product IDs become quantities, and the
+ * names and prices for every legacy order in the batch come from one
+ * product-service call; the original prices are not recorded anywhere, so
+ * the current ones are the closest available snapshot. The items are then
+ * written back, and later reads need no product-service call.
+ *
+ * If product-service is unavailable the orders are returned with
+ * quantities only and nothing is written, so the next read tries again.
+ */
+@Component
+public class OrderItemMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderItemMigration.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProductClient productClient;
+
+    public Order upgrade(Order order) {
+        upgrade(List.of(order));
+        return order;
+    }
+
+    /**
+     * Fills in {@code items} on any of the orders that lack them
+     *
+     * @param orders orders as read from Mongo; updated in place
+     * @return false if the orders that lacked items could not be priced and
+     *         were given quantities only
+     */
+    public boolean upgrade(List<Order> orders) {
+        List<Order> legacy = new ArrayList<>();
+        Set<String> productIds = new LinkedHashSet<>();
+        for (Order order : orders) {
+            if (order.getItems() == null && order.getProductIds() != null) {
+                legacy.add(order);
+                productIds.addAll(order.getProductIds());
+            }
+        }
+        if (legacy.isEmpty()) {
+            return true;
+        }
+
+        Map<String, ProductSummary> products = new LinkedHashMap<>();
+        boolean priced;
+        try {
+            if (!productIds.isEmpty()) {
+                for (ProductSummary product : productClient.getProducts(productIds).getProducts()) {
+                    products.put(product.getId(), product);
+                }
+            }
+            priced = true;
+        } catch (DownstreamUnavailableException e) {
+            log.debug("Could not price {} legacy orders, serving quantities only", legacy.size(), e);
+            priced = false;
+        } catch (IllegalArgumentException e) {
+            // Not an outage: retrying the same lookup will not help
+            log.warn("product-service rejected the lookup for {} legacy orders, serving quantities only", legacy.size(), e);
+            priced = false;
+        }
+
+        BulkOperations writes = mongoTemplate.bulkOps(BulkMode.UNORDERED, Order.class);
+        for (Order order : legacy) {
+            order.setItems(items(order.getProductIds(), products));
+            if (priced) {
+                writes.updateOne(
+                        Query.query(Criteria.where("id").is(order.getId()).and("items").exists(false)),
+                        new Update().set("items", order.getItems()));
+            }
+        }
+        if (priced) {
+            try {
+                writes.execute();
+            } catch (RuntimeException e) {
+                // Harmless: the orders are upgraded again on a later read
+                log.warn("Could not save line items for {} legacy orders", legacy.size(), e);
+            }
+        }
+        return priced;
+    }
+
+    private static List<OrderItem> items(List<String> productIds, Map<String, ProductSummary> products) {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (String productId : productIds) {
+            quantities.merge(productId, 1, Integer::sum);
+        }
+        List<OrderItem> items = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> {
+            ProductSummary product = products.get(productId);
+            items.add(new OrderItem(productId,
+                    product == null ? null : product.getName(),
+                    quantity,
+                    product == null ? null : product.getPrice()));
+        });
+        return items;
+    }
+}
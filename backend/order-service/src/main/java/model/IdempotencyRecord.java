@@ -0,0 +1,38 @@
+package com.velixa.order.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import com.velixa.order.dto.OrderDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The outcome of an order request made under an {@code Idempotency-Key}.
+ * The key is the {@code _id}, so the unique index on it decides which
+ * request executes; the others replay {@code response}.
+ */
+@Document(collection = "order_idempotency")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    public static final String IN_PROGRESS = "IN_PROGRESS";
+    public static final String COMPLETED = "COMPLETED";
+
+    @Id
+    private String key;
+    private String fingerprint; // hash of the request the key was first used with
+    private String status; // IN_PROGRESS, COMPLETED
+    private OrderDTO response;
+    private String owner; // claim token of the execution holding an IN_PROGRESS record
+    private Instant leaseUntil; // renewed by the owner; an IN_PROGRESS record past this is taken over by the next retry
+    @Indexed(name = "expireAt_ttl", expireAfter = "0s")
+    private Instant expireAt;
+}
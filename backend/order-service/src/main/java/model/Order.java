@@ -2,12 +2,14 @@ package com.velixa.order.model;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
 import java.util.List;
 
 @Document(collection = "orders")
+@CompoundIndex(name = "userId_createdAt_id", def = "{'userId': 1, 'createdAt': -1, '_id': -1}")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -17,9 +19,12 @@ public class Order {
     private String id;
     private String userId;
     private List<String> productIds;
+    private List<OrderItem> items; // null on orders placed before line items existed
     private double totalAmount;
     private String status; // e.g., PENDING, CONFIRMED, SHIPPED
+    private List<String> reservationIds; // inventory-service holds taken at checkout
     private Instant createdAt;
+    private Instant updatedAt; // last write; null on orders not written since it was added
     
     
 	public String getId() {
@@ -40,6 +45,12 @@ public class Order {
 	public void setProductIds(List<String> productIds) {
 		this.productIds = productIds;
 	}
+	public List<OrderItem> getItems() {
+		return items;
+	}
+	public void setItems(List<OrderItem> items) {
+		this.items = items;
+	}
 	public double getTotalAmount() {
 		return totalAmount;
 	}
@@ -52,16 +63,29 @@ public class Order {
 	public void setStatus(String status) {
 		this.status = status;
 	}
+	public List<String> getReservationIds() {
+		return reservationIds;
+	}
+	public void setReservationIds(List<String> reservationIds) {
+		this.reservationIds = reservationIds;
+	}
 	public Instant getCreatedAt() {
 		return createdAt;
 	}
 	public void setCreatedAt(Instant createdAt) {
 		this.createdAt = createdAt;
 	}
+	public Instant getUpdatedAt() {
+		return updatedAt;
+	}
+	public void setUpdatedAt(Instant updatedAt) {
+		this.updatedAt = updatedAt;
+	}
 	@Override
 	public String toString() {
-		return "Order [id=" + id + ", userId=" + userId + ", productIds=" + productIds + ", totalAmount=" + totalAmount
-				+ ", status=" + status + ", createdAt=" + createdAt + "]";
+		return "Order [id=" + id + ", userId=" + userId + ", productIds=" + productIds + ", items=" + items + ", totalAmount=" + totalAmount
+				+ ", status=" + status + ", reservationIds=" + reservationIds + ", createdAt=" + createdAt
+				+ ", updatedAt=" + updatedAt + "]";
 	}
     
 }
@@ -0,0 +1,61 @@
+package com.velixa.order.model;
+
+import java.time.Instant;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.velixa.order.dto.OrderDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An order change waiting in the outbox, written in the same transaction
+ * as the change itself. Consumers may see an event more than once and
+ * should de-duplicate on {@code id}.
+ *
+ * ORDER_CREATED comes from a checkout's PENDING insert (and createOrder),
+ * ORDER_UPDATED from checkout moving the order to CONFIRMED or FAILED, and
+ * ORDER_DELETED from {@code DELETE /api/orders/{id}}.
+ */
+@Document(collection = "order_outbox")
+@CompoundIndex(name = "status_id", def = "{'status': 1, '_id': 1}")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderEvent {
+
+    public static final String ORDER_CREATED = "ORDER_CREATED";
+    public static final String ORDER_UPDATED = "ORDER_UPDATED";
+    public static final String ORDER_DELETED = "ORDER_DELETED";
+
+    public static final String PENDING = "PENDING";
+    public static final String PUBLISHED = "PUBLISHED";
+
+    @Id
+    @JsonSerialize(using = ToStringSerializer.class)
+    private ObjectId id;
+
+    private String type; // ORDER_CREATED, ORDER_UPDATED, ORDER_DELETED
+
+    private String orderId;
+
+    private OrderDTO order; // state after the change, null once deleted
+
+    private Instant occurredAt;
+
+    @JsonIgnore
+    private String status; // PENDING until every sink has it, then PUBLISHED
+
+    @JsonIgnore
+    @Indexed(name = "expireAt_ttl", expireAfter = "0s")
+    private Instant expireAt; // set once published
+}
@@ -0,0 +1,30 @@
+package com.velixa.order.model;
+
+import java.math.BigDecimal;
+
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of an order. Name and unit price are copied from product-service
+ * when the order is placed, so the order reads the same whatever happens to
+ * the product later.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderItem {
+
+    private String productId;
+
+    private String name; // at purchase time
+
+    private int quantity;
+
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal unitPrice; // at purchase time; null if the product was unknown
+}
@@ -0,0 +1,45 @@
+package com.velixa.order.model;
+
+import java.time.Instant;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Order count and revenue for one time bucket and status, kept current by
+ * every order write. The unique index is what upserts and rebuilds match on.
+ */
+@Document(collection = "order_rollups")
+@CompoundIndex(name = "granularity_bucketStart_status", def = "{'granularity': 1, 'bucketStart': 1, 'status': 1}", unique = true)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderRollup {
+
+    public static final String HOUR = "HOUR";
+    public static final String DAY = "DAY";
+
+    public static final String NO_STATUS = "NONE"; // orders created without a status
+
+    @Id
+    @JsonIgnore
+    private ObjectId id;
+
+    private String granularity; // HOUR, DAY
+
+    private Instant bucketStart;
+
+    private String status;
+
+    private long orderCount;
+
+    private double revenue; // sum of totalAmount
+}
@@ -0,0 +1,30 @@
+package com.velixa.order.model;
+
+import java.time.Instant;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * How far the outbox relay has got, and which instance currently holds the
+ * lease to run it. There is a single document.
+ */
+@Document(collection = "order_outbox_checkpoint")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxCheckpoint {
+
+    @Id
+    private String id;
+    private String owner; // instance running the relay
+    private Instant leaseUntil; // another instance may take over after this
+    private ObjectId lastEventId; // newest event delivered to every sink
+    private Instant lastPublishedAt;
+    private long published; // events delivered since the checkpoint was created
+}
@@ -0,0 +1,68 @@
+package com.velixa.order.outbox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.velixa.order.model.OrderEvent;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Appends events to a local NDJSON file, one per line, and syncs the file
+ * before the batch counts as delivered.
+ */
+@Component
+@ConditionalOnProperty(name = {"order.outbox.enabled", "order.outbox.file.enabled"}, havingValue = "true")
+public class FileEventSink implements OrderEventSink {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${order.outbox.file.path:./data/order-events.ndjson}")
+    private String path;
+
+    private Path file;
+
+    @PostConstruct
+    public void open() throws IOException {
+        file = Paths.get(path);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+    }
+
+    @Override
+    public void publish(List<OrderEvent> events) {
+        try {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            for (OrderEvent event : events) {
+                objectMapper.writeValue(lines, event);
+                lines.write('\n');
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append order events to " + file, e);
+        }
+    }
+}
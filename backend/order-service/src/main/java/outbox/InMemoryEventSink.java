@@ -0,0 +1,45 @@
+package com.velixa.order.outbox;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.velixa.order.model.OrderEvent;
+
+/**
+ * Keeps the most recent events in memory. Meant for tests and local runs,
+ * where it can be read back with {@link #events()}.
+ */
+@Component
+@ConditionalOnProperty(name = {"order.outbox.enabled", "order.outbox.memory.enabled"}, havingValue = "true")
+public class InMemoryEventSink implements OrderEventSink {
+
+    private final int capacity;
+    private final ArrayDeque<OrderEvent> events = new ArrayDeque<>();
+
+    public InMemoryEventSink(@Value("${order.outbox.memory.capacity:10000}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized void publish(List<OrderEvent> batch) {
+        for (OrderEvent event : batch) {
+            if (events.size() == capacity) {
+                events.removeFirst();
+            }
+            events.addLast(event);
+        }
+    }
+
+    public synchronized List<OrderEvent> events() {
+        return new ArrayList<>(events);
+    }
+
+    public synchronized void clear() {
+        events.clear();
+    }
+}
@@ -0,0 +1,20 @@
+package com.velixa.order.outbox;
+
+import java.util.List;
+
+import com.velixa.order.model.OrderEvent;
+
+/**
+ * A destination for order events. Every sink bean receives every batch the
+ * outbox relay reads.
+ */
+public interface OrderEventSink {
+
+    /**
+     * Delivers a batch of events, oldest first
+     *
+     * @param events the batch
+     * @throws RuntimeException if delivery failed; the whole batch is retried on the next poll
+     */
+    void publish(List<OrderEvent> events);
+}
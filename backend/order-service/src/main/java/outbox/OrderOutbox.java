@@ -0,0 +1,47 @@
+package com.velixa.order.outbox;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.velixa.order.dto.OrderDTO;
+import com.velixa.order.model.OrderEvent;
+
+/**
+ * Optional transactional outbox. Order writes run inside
+ * {@link #inTransaction} and append their event there, so an event exists
+ * exactly when its change was committed. {@link OutboxRelay} delivers them.
+ * See {@link OrderEvent} for which writes produce which events.
+ */
+@Component
+@ConditionalOnProperty(name = "order.outbox.enabled", havingValue = "true")
+public class OrderOutbox {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    public <T> T inTransaction(Supplier<T> work) {
+        return transactionTemplate.execute(status -> work.get());
+    }
+
+    public OrderEvent event(String type, String orderId, OrderDTO order) {
+        return new OrderEvent(new ObjectId(), type, orderId, order, Instant.now(), OrderEvent.PENDING, null);
+    }
+
+    /**
+     * Appends events to the outbox; call from inside {@link #inTransaction}
+     */
+    public void append(List<OrderEvent> events) {
+        mongoTemplate.insertAll(events);
+    }
+}
@@ -0,0 +1,143 @@
+package com.velixa.order.outbox;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.velixa.order.model.OrderEvent;
+import com.velixa.order.model.OutboxCheckpoint;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Moves events from the outbox to the sinks, at least once.
+ *
+ * One instance at a time holds the relay lease in
+ * {@code order_outbox_checkpoint}. It reads pending events in {@code _id}
+ * order, {@code order.outbox.batch-size} at a time, hands each batch to
+ * every sink, and only then marks the batch published and advances the
+ * checkpoint. A crash or sink failure between those steps means the batch
+ * is delivered again. Because pending events are selected by status rather
+ * than by position, an event whose transaction committed late is still
+ * picked up on the next poll.
+ */
+@Component
+@ConditionalOnProperty(name = "order.outbox.enabled", havingValue = "true")
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private static final String CHECKPOINT_ID = "relay";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private List<OrderEventSink> sinks;
+
+    @Value("${order.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${order.outbox.max-batches-per-poll:20}")
+    private int maxBatchesPerPoll;
+
+    @Value("${order.outbox.lease-ms:30000}")
+    private long leaseMillis;
+
+    @Value("${order.outbox.retention-hours:72}")
+    private long retentionHours;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @PostConstruct
+    public void checkSinks() {
+        if (sinks.isEmpty()) {
+            throw new IllegalStateException("order.outbox.enabled needs at least one sink configured");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order.outbox.poll-interval-ms:500}")
+    public void relay() {
+        if (!acquireLease()) {
+            return;
+        }
+        for (int i = 0; i < maxBatchesPerPoll; i++) {
+            List<OrderEvent> batch = mongoTemplate.find(
+                    Query.query(Criteria.where("status").is(OrderEvent.PENDING))
+                            .with(Sort.by(Sort.Direction.ASC, "_id"))
+                            .limit(batchSize),
+                    OrderEvent.class);
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                for (OrderEventSink sink : sinks) {
+                    sink.publish(batch);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Delivering {} order events failed, retrying on the next poll", batch.size(), e);
+                return;
+            }
+            if (!checkpoint(batch)) {
+                return;
+            }
+            if (batch.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    private boolean acquireLease() {
+        Instant now = Instant.now();
+        try {
+            OutboxCheckpoint checkpoint = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("id").is(CHECKPOINT_ID)
+                            .orOperator(Criteria.where("owner").is(instanceId), Criteria.where("leaseUntil").lte(now))),
+                    new Update().set("owner", instanceId).set("leaseUntil", now.plusMillis(leaseMillis)),
+                    FindAndModifyOptions.options().upsert(true).returnNew(true),
+                    OutboxCheckpoint.class);
+            return checkpoint != null;
+        } catch (DuplicateKeyException e) {
+            // Another instance holds a live lease
+            return false;
+        }
+    }
+
+    private boolean checkpoint(List<OrderEvent> batch) {
+        Instant now = Instant.now();
+        List<ObjectId> ids = batch.stream().map(OrderEvent::getId).collect(Collectors.toList());
+        mongoTemplate.updateMulti(Query.query(Criteria.where("id").in(ids)),
+                new Update().set("status", OrderEvent.PUBLISHED)
+                        .set("expireAt", now.plus(Duration.ofHours(retentionHours))),
+                OrderEvent.class);
+        boolean stillOwner = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(CHECKPOINT_ID).and("owner").is(instanceId)),
+                new Update().set("lastEventId", ids.get(ids.size() - 1))
+                        .set("lastPublishedAt", now)
+                        .inc("published", batch.size())
+                        .set("leaseUntil", now.plusMillis(leaseMillis)),
+                OutboxCheckpoint.class).getModifiedCount() > 0;
+        if (!stillOwner) {
+            log.info("Lost the outbox relay lease, stopping this poll");
+        }
+        return stillOwner;
+    }
+}
@@ -0,0 +1,37 @@
+package com.velixa.order.outbox;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import com.velixa.order.model.OrderEvent;
+
+/**
+ * POSTs each batch as a JSON array to {@code order.outbox.webhook.url}. Any
+ * non-2xx response fails the batch so it is sent again.
+ */
+@Component
+@ConditionalOnProperty(name = {"order.outbox.enabled", "order.outbox.webhook.enabled"}, havingValue = "true")
+public class WebhookEventSink implements OrderEventSink {
+
+    private final RestClient restClient;
+
+    public WebhookEventSink(RestClient.Builder builder, JdkClientHttpRequestFactory downstreamRequestFactory,
+            @Value("${order.outbox.webhook.url}") String url) {
+        this.restClient = builder.baseUrl(url).requestFactory(downstreamRequestFactory).build();
+    }
+
+    @Override
+    public void publish(List<OrderEvent> events) {
+        restClient.post()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(events)
+                .retrieve()
+                .toBodilessEntity();
+    }
+}
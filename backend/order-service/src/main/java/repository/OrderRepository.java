@@ -1,8 +1,27 @@
 package com.velixa.order.repository;
 
-import com.velixa.order.model.Order;
+import java.time.Instant;
+import java.util.List;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import com.velixa.order.model.Order;
 
 public interface OrderRepository extends MongoRepository<Order, String> {
-    // You can add custom queries here later if needed
+
+    /**
+     * First page of a user's orders. With a {@code createdAt, _id}
+     * descending sort this walks the userId_createdAt_id index.
+     */
+    List<Order> findByUserId(String userId, Pageable pageable);
+
+    /**
+     * The user's orders that sort after the given order, for keyset
+     * pagination. Bounded by the index, however deep the page.
+     */
+    @Query("{ 'userId': ?0, '$or': [ { 'createdAt': { '$lt': ?1 } }, { 'createdAt': ?1, '_id': { '$lt': ?2 } } ] }")
+    List<Order> findByUserIdAfter(String userId, Instant lastCreatedAt, ObjectId lastId, Pageable pageable);
 }
@@ -0,0 +1,59 @@
+package com.velixa.order.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import org.bson.types.ObjectId;
+
+/**
+ * Continuation token for a user's order history. Clients treat it as
+ * opaque; internally it is the {@code createdAt} and {@code _id} of the last
+ * order on the previous page, base64url-encoded.
+ */
+final class OrderCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final Instant lastCreatedAt;
+    private final ObjectId lastId;
+
+    OrderCursor(Instant lastCreatedAt, ObjectId lastId) {
+        this.lastCreatedAt = lastCreatedAt;
+        this.lastId = lastId;
+    }
+
+    Instant getLastCreatedAt() {
+        return lastCreatedAt;
+    }
+
+    ObjectId getLastId() {
+        return lastId;
+    }
+
+    String encode() {
+        String raw = lastCreatedAt.toEpochMilli() + String.valueOf(SEPARATOR) + lastId.toHexString();
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static OrderCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException();
+            }
+            String lastId = raw.substring(separator + 1);
+            if (!ObjectId.isValid(lastId)) {
+                throw new IllegalArgumentException();
+            }
+            return new OrderCursor(Instant.ofEpochMilli(Long.parseLong(raw.substring(0, separator))), new ObjectId(lastId));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.velixa.order.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.client.result.UpdateResult;
+import com.velixa.order.dto.OrderDTO;
+import com.velixa.order.exception.IdempotencyConflictException;
+import com.velixa.order.model.IdempotencyRecord;
+
+/**
+ * Runs an order request at most once per {@code Idempotency-Key}.
+ *
+ * Three layers, cheapest first: an LRU of recently completed keys answers
+ * most retries without any I/O; concurrent duplicates on this instance wait
+ * on the one in-flight execution; and the unique key in
+ * {@code order_idempotency} settles races between instances and survives
+ * restarts. A request that fails releases its key so it can be retried.
+ *
+ * Each execution claims the key with its own owner token and renews the
+ * lease every {@code order.idempotency.renew-interval-ms} while it runs, so
+ * only a claim whose instance died or stalled for longer than
+ * {@code order.idempotency.lease-ms} is taken over by a retry. The result is
+ * only recorded while the claim is still held; an execution that lost its
+ * claim reports a conflict instead of overwriting the new owner. If recording
+ * the result fails, the key stays claimed and the renewal keeps retrying the
+ * write, so retries see the request as still in progress rather than running
+ * it again; only if the instance dies before the write lands does the claim
+ * lapse and the next retry execute again.
+ */
+@Component
+public class OrderIdempotency {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderIdempotency.class);
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${order.idempotency.lease-ms:30000}")
+    private long leaseMillis;
+
+    @Value("${order.idempotency.retention-hours:24}")
+    private long retentionHours;
+
+    private final Map<String, Completed> recent;
+    private final ConcurrentHashMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Claim> claims = new ConcurrentHashMap<>();
+
+    public OrderIdempotency(@Value("${order.idempotency.cache-size:10000}") int cacheSize) {
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Completed> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Runs {@code action} once for the key, or returns the result of the
+     * run that already happened
+     *
+     * @param key the client's Idempotency-Key
+     * @param request the parts of the request that identify it; a key reused with a different request is refused
+     * @param action the order creation to run
+     * @return the order created under this key
+     * @throws IdempotencyConflictException if the key belongs to another request, or is still being processed by another instance
+     */
+    public OrderDTO execute(String key, String request, Supplier<OrderDTO> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String fingerprint = fingerprint(request);
+
+        Completed completed;
+        synchronized (recent) {
+            completed = recent.get(key);
+        }
+        if (completed != null) {
+            return verified(key, fingerprint, completed.fingerprint, completed.response);
+        }
+
+        InFlight mine = new InFlight(fingerprint);
+        InFlight running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            verified(key, fingerprint, running.fingerprint, null);
+            return join(running.result);
+        }
+        try {
+            OrderDTO response = executeOnce(key, fingerprint, action);
+            synchronized (recent) {
+                recent.put(key, new Completed(fingerprint, response));
+            }
+            mine.result.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private OrderDTO executeOnce(String key, String fingerprint, Supplier<OrderDTO> action) {
+        Instant now = Instant.now();
+        Claim claim = new Claim(UUID.randomUUID().toString());
+        try {
+            mongoTemplate.insert(new IdempotencyRecord(key, fingerprint, IdempotencyRecord.IN_PROGRESS, null, claim.owner,
+                    now.plusMillis(leaseMillis), now.plus(Duration.ofHours(retentionHours))));
+        } catch (DuplicateKeyException e) {
+            IdempotencyRecord existing = mongoTemplate.findById(key, IdempotencyRecord.class);
+            if (existing == null) {
+                // Expired between the insert and the read
+                return executeOnce(key, fingerprint, action);
+            }
+            if (IdempotencyRecord.COMPLETED.equals(existing.getStatus())) {
+                return verified(key, fingerprint, existing.getFingerprint(), existing.getResponse());
+            }
+            verified(key, fingerprint, existing.getFingerprint(), null);
+            // Take over a claim whose owner stopped renewing it
+            IdempotencyRecord claimed = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("key").is(key)
+                            .and("status").is(IdempotencyRecord.IN_PROGRESS)
+                            .and("leaseUntil").lte(now)),
+                    new Update().set("owner", claim.owner).set("leaseUntil", now.plusMillis(leaseMillis)),
+                    FindAndModifyOptions.options().returnNew(true),
+                    IdempotencyRecord.class);
+            if (claimed == null) {
+                throw new IdempotencyConflictException("A request with this Idempotency-Key is still being processed");
+            }
+        }
+
+        claims.put(key, claim);
+        OrderDTO response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            claims.remove(key, claim);
+            mongoTemplate.remove(claimedBy(key, claim), IdempotencyRecord.class);
+            throw e;
+        }
+        try {
+            record(key, claim, response);
+        } catch (DataAccessException e) {
+            // Keep the key claimed; renewClaims retries the write
+            claim.unrecorded = response;
+            throw e;
+        }
+        return response;
+    }
+
+    /**
+     * Keeps the claims of running executions alive and retries recording
+     * results whose first write failed.
+     */
+    @Scheduled(fixedDelayString = "${order.idempotency.renew-interval-ms:10000}")
+    public void renewClaims() {
+        claims.forEach((key, claim) -> {
+            try {
+                if (claim.unrecorded != null) {
+                    record(key, claim, claim.unrecorded);
+                } else {
+                    mongoTemplate.updateFirst(claimedBy(key, claim),
+                            new Update().set("leaseUntil", Instant.now().plusMillis(leaseMillis)), IdempotencyRecord.class);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not renew the claim on Idempotency-Key {}", key, e);
+            }
+        });
+    }
+
+    private void record(String key, Claim claim, OrderDTO response) {
+        UpdateResult result = mongoTemplate.updateFirst(claimedBy(key, claim),
+                new Update().set("status", IdempotencyRecord.COMPLETED).set("response", response)
+                        .unset("owner").unset("leaseUntil"),
+                IdempotencyRecord.class);
+        claims.remove(key, claim);
+        if (result.getMatchedCount() == 0) {
+            log.error("Claim on Idempotency-Key {} was taken over before order {} was recorded", key, response.getId());
+            throw new IdempotencyConflictException("The claim on Idempotency-Key " + key
+                    + " lapsed and was taken over before order " + response.getId() + " was recorded");
+        }
+    }
+
+    private static Query claimedBy(String key, Claim claim) {
+        return Query.query(Criteria.where("key").is(key)
+                .and("status").is(IdempotencyRecord.IN_PROGRESS)
+                .and("owner").is(claim.owner));
+    }
+
+    private static OrderDTO verified(String key, String fingerprint, String expected, OrderDTO response) {
+        if (!fingerprint.equals(expected)) {
+            throw new IdempotencyConflictException("Idempotency-Key " + key + " was already used for a different request");
+        }
+        return response;
+    }
+
+    private static OrderDTO join(CompletableFuture<OrderDTO> result) {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a duplicate request", e);
+        }
+    }
+
+    private static String fingerprint(String request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(request.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Completed(String fingerprint, OrderDTO response) {
+    }
+
+    private static final class Claim {
+        private final String owner;
+        private volatile OrderDTO unrecorded; // set when the first write of the result failed
+
+        private Claim(String owner) {
+            this.owner = owner;
+        }
+    }
+
+    private static final class InFlight {
+        private final String fingerprint;
+        private final CompletableFuture<OrderDTO> result = new CompletableFuture<>();
+
+        private InFlight(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
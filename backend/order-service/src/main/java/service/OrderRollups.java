@@ -0,0 +1,234 @@
+package com.velixa.order.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.MergeOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.velixa.order.archive.OrderArchive;
+import com.velixa.order.model.Order;
+import com.velixa.order.model.OrderRollup;
+
+/**
+ * Hourly and daily order counts and revenue per status, in
+ * {@code order_rollups}.
+ *
+ * Every order write moves its order's contribution between buckets with
+ * {@code $inc}, so a dashboard reads one document per bucket and status
+ * instead of every order. Buckets start on hour and day boundaries in
+ * {@code order.rollups.time-zone}. {@link #rebuild} recomputes whole days
+ * from the orders themselves, to repair drift after a failed write or a
+ * change of time zone; with archiving enabled only days after the archive
+ * horizon can be rebuilt.
+ */
+@Component
+public class OrderRollups {
+
+    private static final Map<String, ChronoUnit> UNITS = Map.of(OrderRollup.HOUR, ChronoUnit.HOURS, OrderRollup.DAY, ChronoUnit.DAYS);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired(required = false)
+    private OrderArchive archive;
+
+    @Value("${order.rollups.max-buckets:2000}")
+    private int maxBuckets;
+
+    private final ZoneId zone;
+
+    public OrderRollups(@Value("${order.rollups.time-zone:UTC}") String timeZone) {
+        this.zone = ZoneId.of(timeZone);
+    }
+
+    /**
+     * The part of the rollups one order accounts for
+     */
+    public record Share(Instant createdAt, String status, double amount) {
+
+        public static Share of(Order order) {
+            if (order == null || order.getCreatedAt() == null) {
+                return null;
+            }
+            return new Share(order.getCreatedAt(),
+                    order.getStatus() == null ? OrderRollup.NO_STATUS : order.getStatus(),
+                    order.getTotalAmount());
+        }
+    }
+
+    /**
+     * Moves an order's contribution from its old state to its new one
+     *
+     * @param before the order before the write, null if it is new
+     * @param after the order after the write, null if it was deleted
+     */
+    public void apply(Share before, Share after) {
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        Map<Bucket, Delta> deltas = new HashMap<>();
+        add(deltas, before, -1);
+        add(deltas, after, 1);
+        write(deltas);
+    }
+
+    /**
+     * Adds newly inserted orders, combining those that share a bucket
+     */
+    public void created(List<Order> orders) {
+        Map<Bucket, Delta> deltas = new HashMap<>();
+        for (Order order : orders) {
+            add(deltas, Share.of(order), 1);
+        }
+        write(deltas);
+    }
+
+    /**
+     * Rollups in {@code [from, to)}, oldest first
+     *
+     * @param granularity HOUR or DAY
+     * @param status only this status, or null for all
+     * @throws IllegalArgumentException if the range is invalid or spans more than {@code order.rollups.max-buckets} buckets
+     */
+    public List<OrderRollup> find(String granularity, Instant from, Instant to, String status) {
+        ChronoUnit unit = unit(granularity);
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        if (Duration.between(from, to).dividedBy(unit.getDuration()) > maxBuckets) {
+            throw new IllegalArgumentException("At most " + maxBuckets + " " + granularity + " buckets can be read at once");
+        }
+        Criteria criteria = Criteria.where("granularity").is(granularity).and("bucketStart").gte(from).lt(to);
+        if (status != null) {
+            criteria.and("status").is(status);
+        }
+        return mongoTemplate.find(Query.query(criteria).with(Sort.by("bucketStart", "status")), OrderRollup.class);
+    }
+
+    /**
+     * Recomputes the rollups of every day touching {@code [from, to)} from
+     * the orders, or of all time when both are null. Increments that land
+     * while a rebuild runs may be lost, so run it when order traffic is low.
+     *
+     * @return the number of rollup documents now in the rebuilt range
+     */
+    public long rebuild(Instant from, Instant to) {
+        Criteria orders = Criteria.where("createdAt").exists(true);
+        Criteria rollups = new Criteria();
+        if (from != null || to != null) {
+            if (from == null || to == null || !from.isBefore(to)) {
+                throw new IllegalArgumentException("Give both from and to, with from before to");
+            }
+            // Whole days, so no day bucket is rebuilt from part of its orders
+            Instant start = bucketStart(from, ChronoUnit.DAYS);
+            Instant end = bucketStart(to, ChronoUnit.DAYS);
+            if (end.isBefore(to)) {
+                end = ZonedDateTime.ofInstant(end, zone).plusDays(1).toInstant();
+            }
+            orders = Criteria.where("createdAt").gte(start).lt(end);
+            rollups = Criteria.where("bucketStart").gte(start).lt(end);
+        }
+        if (archive != null) {
+            // Archived orders are no longer in Mongo to be counted again
+            Instant horizon = archive.horizon();
+            if (from == null || bucketStart(from, ChronoUnit.DAYS).isBefore(horizon)) {
+                throw new IllegalArgumentException("Orders before " + horizon + " may be archived; rebuild from a later day");
+            }
+        }
+        mongoTemplate.remove(Query.query(rollups), OrderRollup.class);
+        for (String granularity : List.of(OrderRollup.HOUR, OrderRollup.DAY)) {
+            mongoTemplate.aggregate(rebuildPipeline(orders, granularity), Order.class, OrderRollup.class);
+        }
+        return mongoTemplate.count(Query.query(rollups), OrderRollup.class);
+    }
+
+    private Aggregation rebuildPipeline(Criteria orders, String granularity) {
+        return Aggregation.newAggregation(
+                Aggregation.match(orders),
+                Aggregation.project("totalAmount")
+                        .and(DateOperators.zonedDateOf("createdAt", DateOperators.Timezone.valueOf(zone.getId()))
+                                .truncate(granularity.toLowerCase())).as("bucketStart")
+                        .and(ConditionalOperators.ifNull("status").then(OrderRollup.NO_STATUS)).as("status"),
+                Aggregation.group("bucketStart", "status")
+                        .count().as("orderCount")
+                        .sum("totalAmount").as("revenue"),
+                Aggregation.project("orderCount", "revenue")
+                        .and("_id.bucketStart").as("bucketStart")
+                        .and("_id.status").as("status")
+                        .andExpression("'" + granularity + "'").as("granularity")
+                        .andExclude("_id"),
+                MergeOperation.builder()
+                        .intoCollection("order_rollups")
+                        .on("granularity", "bucketStart", "status")
+                        .whenMatched(MergeOperation.WhenDocumentsMatch.replaceDocument())
+                        .whenNotMatched(MergeOperation.WhenDocumentsDontMatch.insertNewDocument())
+                        .build());
+    }
+
+    private void add(Map<Bucket, Delta> deltas, Share share, int sign) {
+        if (share == null) {
+            return;
+        }
+        for (Map.Entry<String, ChronoUnit> unit : UNITS.entrySet()) {
+            Delta delta = deltas.computeIfAbsent(
+                    new Bucket(unit.getKey(), bucketStart(share.createdAt(), unit.getValue()), share.status()),
+                    bucket -> new Delta());
+            delta.count += sign;
+            delta.revenue += sign * share.amount();
+        }
+    }
+
+    private void write(Map<Bucket, Delta> deltas) {
+        deltas.values().removeIf(delta -> delta.count == 0 && delta.revenue == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        BulkOperations writes = mongoTemplate.bulkOps(BulkMode.UNORDERED, OrderRollup.class);
+        deltas.forEach((bucket, delta) -> writes.upsert(
+                Query.query(Criteria.where("granularity").is(bucket.granularity())
+                        .and("bucketStart").is(bucket.start())
+                        .and("status").is(bucket.status())),
+                new Update().inc("orderCount", delta.count).inc("revenue", delta.revenue)));
+        writes.execute();
+    }
+
+    private Instant bucketStart(Instant instant, ChronoUnit unit) {
+        return ZonedDateTime.ofInstant(instant, zone).truncatedTo(unit).toInstant();
+    }
+
+    private static ChronoUnit unit(String granularity) {
+        ChronoUnit unit = granularity == null ? null : UNITS.get(granularity);
+        if (unit == null) {
+            throw new IllegalArgumentException("granularity must be one of " + UNITS.keySet());
+        }
+        return unit;
+    }
+
+    private record Bucket(String granularity, Instant start, String status) {
+    }
+
+    private static final class Delta {
+        private long count;
+        private double revenue;
+    }
+}
@@ -1,14 +1,51 @@
 package com.velixa.order.service;
 
+import com.velixa.order.dto.CheckoutRequest;
 import com.velixa.order.dto.OrderDTO;
+import com.velixa.order.dto.OrderPageDTO;
 
 import java.util.List;
 import java.util.Optional;
 
 public interface OrderService {
     OrderDTO createOrder(OrderDTO orderDTO);
+
+    /**
+     * Places an order after validating its products against product-service
+     * and reserving their stock in inventory-service. The lookups and
+     * reservations run concurrently, so checkout takes about as long as the
+     * slowest of them. The total is computed from current product prices.
+     *
+     * @param request the user and the products to order
+     * @return the confirmed order
+     * @throws IllegalArgumentException if a product does not exist
+     * @throws com.velixa.order.exception.InsufficientStockException if a product cannot be reserved
+     * @throws com.velixa.order.exception.DownstreamUnavailableException if a downstream call fails or the checkout times out
+     */
+    OrderDTO checkout(CheckoutRequest request);
+
+    /**
+     * Like {@link #checkout(CheckoutRequest)}, but at most once per key:
+     * repeating a request with the same key, including concurrently,
+     * returns the original order without reserving stock or inserting again.
+     *
+     * @param request the user and the products to order
+     * @param idempotencyKey the client's Idempotency-Key, null to always run
+     * @return the order created under this key
+     * @throws com.velixa.order.exception.IdempotencyConflictException if the key was used for a different request or is still being processed elsewhere
+     */
+    OrderDTO checkout(CheckoutRequest request, String idempotencyKey);
     Optional<OrderDTO> getOrderById(String id);
+
+    /**
+     * A page of a user's orders, newest first, using keyset pagination
+     *
+     * @param userId the ID of the user
+     * @param cursor token from the previous page, null for the first page
+     * @param limit maximum number of orders, capped at {@code order.history.max-page-size}
+     * @return the page and the cursor for the next one
+     */
+    OrderPageDTO getOrderHistory(String userId, String cursor, int limit);
     List<OrderDTO> getAllOrders();
-    Optional<OrderDTO> updateOrder(String id, OrderDTO orderDTO);
     void deleteOrder(String id);
 }
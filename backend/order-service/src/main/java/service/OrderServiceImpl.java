@@ -1,14 +1,53 @@
 package com.velixa.order.service;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import com.velixa.order.archive.OrderArchive;
+import com.velixa.order.batch.OrderGroupCommit;
+import com.velixa.order.client.InventoryClient;
+import com.velixa.order.client.ProductClient;
+import com.velixa.order.dto.CheckoutRequest;
 import com.velixa.order.dto.OrderDTO;
+import com.velixa.order.dto.OrderItemDTO;
+import com.velixa.order.dto.OrderPageDTO;
+import com.velixa.order.dto.ProductBatchResult;
+import com.velixa.order.dto.ProductSummary;
+import com.velixa.order.dto.StockReservation;
+import com.velixa.order.exception.DownstreamUnavailableException;
+import com.velixa.order.migration.OrderItemMigration;
 import com.velixa.order.model.Order;
+import com.velixa.order.model.OrderEvent;
+import com.velixa.order.model.OrderItem;
+import com.velixa.order.outbox.OrderOutbox;
 import com.velixa.order.repository.OrderRepository;
 
 import lombok.RequiredArgsConstructor;
@@ -17,59 +56,449 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class OrderServiceImpl implements OrderService {
 
+    private static final Logger log = LoggerFactory.getLogger(OrderServiceImpl.class);
+
+    static final String PENDING = "PENDING";
+    static final String CONFIRMED = "CONFIRMED";
+    static final String FAILED = "FAILED";
+
+    private static final int MAX_ITEM_QUANTITY = 10_000;
+
 	@Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProductClient productClient;
+
+    @Autowired
+    private InventoryClient inventoryClient;
+
+    @Autowired
+    private OrderIdempotency orderIdempotency;
+
+    @Autowired
+    private OrderItemMigration orderItemMigration;
+
+    @Autowired
+    private OrderRollups orderRollups;
+
+    @Autowired(required = false)
+    private OrderGroupCommit groupCommit;
+
+    @Autowired(required = false)
+    private OrderOutbox outbox;
+
+    @Autowired(required = false)
+    private OrderArchive archive;
+
+    @Value("${order.history.max-page-size:100}")
+    private int maxHistoryPageSize;
+
+    @Value("${order.checkout.timeout-ms:3000}")
+    private long checkoutTimeoutMillis;
+
+    @Value("${order.checkout.max-products:100}")
+    private int maxCheckoutProducts;
+
+    @Value("${order.checkout.reservation-ttl-seconds:300}")
+    private long reservationTtlSeconds;
+
     @Override
     public OrderDTO createOrder(OrderDTO orderDTO) {
         Order order = new Order();
         order.setUserId(orderDTO.getUserId());
-        order.setProductIds(orderDTO.getProductIds());
-        order.setTotalAmount(orderDTO.getTotalPrice());
+        setLines(order, orderDTO);
+        order.setTotalAmount(total(order, orderDTO));
+        order.setCreatedAt(Instant.now());
 
-        order = orderRepository.save(order);
+        order = insert(order);
         orderDTO.setId(order.getId());
+        orderDTO.setProductIds(order.getProductIds());
+        orderDTO.setCreatedAt(order.getCreatedAt());
         return orderDTO;
     }
 
+    @Override
+    public OrderDTO checkout(CheckoutRequest request) {
+        if (request.getUserId() == null || request.getUserId().isBlank()) {
+            throw new IllegalArgumentException("userId is required");
+        }
+        if (request.getProductIds() == null || request.getProductIds().isEmpty()) {
+            throw new IllegalArgumentException("At least one productId is required");
+        }
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (String productId : request.getProductIds()) {
+            if (productId == null || productId.isBlank()) {
+                throw new IllegalArgumentException("productIds must not be blank");
+            }
+            quantities.merge(productId, 1, Integer::sum);
+        }
+        if (quantities.size() > maxCheckoutProducts) {
+            throw new IllegalArgumentException("At most " + maxCheckoutProducts + " distinct products can be ordered at once");
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(checkoutTimeoutMillis);
+        // Scoped to this checkout: closing it waits for every call started here
+        try (ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor()) {
+            Map<String, StockReservation> held = new LinkedHashMap<>();
+            ProductBatchResult catalog = reserveAll(scope, quantities, held, deadline);
+
+            Map<String, ProductSummary> products = new LinkedHashMap<>();
+            for (ProductSummary product : catalog.getProducts()) {
+                products.put(product.getId(), product);
+            }
+            List<OrderItem> items = new ArrayList<>(quantities.size());
+            BigDecimal total = BigDecimal.ZERO;
+            for (Map.Entry<String, Integer> line : quantities.entrySet()) {
+                ProductSummary product = products.get(line.getKey());
+                if (product == null || product.getPrice() == null) {
+                    releaseAll(scope, held.values());
+                    throw new IllegalArgumentException("Product " + line.getKey() + " has no price");
+                }
+                items.add(new OrderItem(line.getKey(), product.getName(), line.getValue(), product.getPrice()));
+                total = total.add(product.getPrice().multiply(BigDecimal.valueOf(line.getValue())));
+            }
+
+            Order order = new Order();
+            order.setUserId(request.getUserId());
+            order.setProductIds(request.getProductIds());
+            order.setItems(items);
+            order.setTotalAmount(total.doubleValue());
+            order.setStatus(PENDING);
+            order.setReservationIds(held.values().stream().map(StockReservation::getId).collect(Collectors.toList()));
+            order.setCreatedAt(Instant.now());
+            // Batched with concurrent checkouts when group commit is enabled
+            try {
+                order = insert(order);
+            } catch (RuntimeException e) {
+                releaseAll(scope, held.values());
+                throw e;
+            }
+
+            long confirmDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(checkoutTimeoutMillis);
+            OrderRollups.Share pending = OrderRollups.Share.of(order);
+            order.setStatus(confirmAll(scope, held.values(), confirmDeadline) ? CONFIRMED : FAILED);
+            order = save(order, OrderEvent.ORDER_UPDATED, pending);
+            if (FAILED.equals(order.getStatus())) {
+                throw new DownstreamUnavailableException("Could not confirm stock for order " + order.getId());
+            }
+            return toDTO(order);
+        }
+    }
+
+    @Override
+    public OrderDTO checkout(CheckoutRequest request, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return checkout(request);
+        }
+        return orderIdempotency.execute(idempotencyKey, request.getUserId() + "|" + request.getProductIds(),
+                () -> checkout(request));
+    }
+
+    /**
+     * Looks the products up and reserves each one concurrently, collecting
+     * results as they complete. The first failure cancels the calls still
+     * running and releases the holds already taken; a hold whose call was
+     * cancelled after inventory-service took it is returned by its TTL.
+     */
+    private ProductBatchResult reserveAll(ExecutorService scope, Map<String, Integer> quantities,
+            Map<String, StockReservation> held, long deadline) {
+        CompletionService<Object> calls = new ExecutorCompletionService<>(scope);
+        List<Future<Object>> pending = new ArrayList<>();
+        pending.add(calls.submit(() -> productClient.getProducts(quantities.keySet())));
+        quantities.forEach((productId, quantity) ->
+                pending.add(calls.submit(() -> inventoryClient.reserve(productId, quantity, reservationTtlSeconds))));
+
+        ProductBatchResult catalog = null;
+        try {
+            for (int i = 0; i < pending.size(); i++) {
+                Object result = await(calls, deadline);
+                if (result instanceof ProductBatchResult products) {
+                    if (products.getMissingIds() != null && !products.getMissingIds().isEmpty()) {
+                        throw new IllegalArgumentException("Unknown products: " + products.getMissingIds());
+                    }
+                    catalog = products;
+                } else {
+                    StockReservation reservation = (StockReservation) result;
+                    held.put(reservation.getProductId(), reservation);
+                }
+            }
+            return catalog;
+        } catch (RuntimeException e) {
+            pending.forEach(future -> future.cancel(true));
+            // Holds that completed alongside the failure
+            for (Future<Object> future : pending) {
+                if (future.state() == Future.State.SUCCESS && future.resultNow() instanceof StockReservation reservation) {
+                    held.putIfAbsent(reservation.getProductId(), reservation);
+                }
+            }
+            releaseAll(scope, held.values());
+            throw e;
+        }
+    }
+
+    /**
+     * Confirms every hold concurrently. If any confirm fails, the holds not
+     * confirmed are released and the ones already confirmed are restocked,
+     * so a FAILED order keeps no stock. A confirm that timed out may still
+     * have gone through; releasing it is then refused and logged.
+     */
+    private boolean confirmAll(ExecutorService scope, Iterable<StockReservation> reservations, long deadline) {
+        List<StockReservation> pending = new ArrayList<>();
+        List<Future<StockReservation>> calls = new ArrayList<>();
+        for (StockReservation reservation : reservations) {
+            pending.add(reservation);
+            calls.add(scope.submit(() -> inventoryClient.confirm(reservation.getId())));
+        }
+        List<StockReservation> confirmed = new ArrayList<>();
+        List<StockReservation> unconfirmed = new ArrayList<>();
+        RuntimeException failure = null;
+        for (int i = 0; i < calls.size(); i++) {
+            try {
+                await(calls.get(i), deadline);
+                confirmed.add(pending.get(i));
+            } catch (RuntimeException e) {
+                failure = failure == null ? e : failure;
+                unconfirmed.add(pending.get(i));
+            }
+        }
+        if (failure == null) {
+            return true;
+        }
+        log.warn("Confirming {} of {} reservations failed", unconfirmed.size(), pending.size(), failure);
+        releaseAll(scope, unconfirmed);
+        restockAll(scope, confirmed);
+        return false;
+    }
+
+    private void releaseAll(ExecutorService scope, Iterable<StockReservation> reservations) {
+        for (StockReservation reservation : reservations) {
+            scope.execute(() -> {
+                try {
+                    inventoryClient.release(reservation.getId());
+                } catch (RuntimeException e) {
+                    // Left to expire in inventory-service
+                    log.warn("Could not release reservation {}", reservation.getId(), e);
+                }
+            });
+        }
+    }
+
+    private void restockAll(ExecutorService scope, Iterable<StockReservation> reservations) {
+        for (StockReservation reservation : reservations) {
+            scope.execute(() -> {
+                try {
+                    inventoryClient.restock(reservation.getProductId(), reservation.getQuantity());
+                } catch (RuntimeException e) {
+                    log.error("Could not restock {} of product {} from confirmed reservation {} of a failed order",
+                            reservation.getQuantity(), reservation.getProductId(), reservation.getId(), e);
+                }
+            });
+        }
+    }
+
+    private static Object await(CompletionService<Object> calls, long deadline) {
+        try {
+            Future<Object> done = calls.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (done == null) {
+                throw new DownstreamUnavailableException("Checkout timed out waiting for downstream services");
+            }
+            return await(done, deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DownstreamUnavailableException("Checkout was interrupted", e);
+        }
+    }
+
+    private static <T> T await(Future<T> call, long deadline) {
+        try {
+            return call.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            throw new DownstreamUnavailableException("Checkout timed out waiting for downstream services");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new DownstreamUnavailableException("Downstream call failed", e.getCause());
+        } catch (CancellationException e) {
+            throw new DownstreamUnavailableException("Downstream call was cancelled", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DownstreamUnavailableException("Checkout was interrupted", e);
+        }
+    }
+
     @Override
     public Optional<OrderDTO> getOrderById(String id) {
-        return orderRepository.findById(id)
-                .map(order -> new OrderDTO(
-                        order.getId(),
-                        order.getUserId(),
-                        order.getProductIds(),
-                        order.getTotalAmount()
-                ));
+        Optional<Order> order = orderRepository.findById(id).map(orderItemMigration::upgrade);
+        if (order.isEmpty() && archive != null) {
+            order = archive.find(id);
+        }
+        return order.map(this::toDTO);
     }
 
     @Override
-    public List<OrderDTO> getAllOrders() {
-        return orderRepository.findAll().stream()
-                .map(order -> new OrderDTO(
-                        order.getId(),
-                        order.getUserId(),
-                        order.getProductIds(),
-                        order.getTotalAmount()
-                ))
-                .collect(Collectors.toList());
+    public OrderPageDTO getOrderHistory(String userId, String cursor, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        int pageSize = Math.min(limit, maxHistoryPageSize);
+        OrderCursor after = OrderCursor.decode(cursor);
+
+        // One extra row tells whether another page exists
+        Pageable page = PageRequest.of(0, pageSize + 1,
+                Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "_id")));
+        List<Order> orders = after == null
+                ? orderRepository.findByUserId(userId, page)
+                : orderRepository.findByUserIdAfter(userId, after.getLastCreatedAt(), after.getLastId(), page);
+
+        String nextCursor = null;
+        if (orders.size() > pageSize) {
+            orders = orders.subList(0, pageSize);
+            Order last = orders.get(pageSize - 1);
+            nextCursor = new OrderCursor(last.getCreatedAt(), new ObjectId(last.getId())).encode();
+        }
+        orderItemMigration.upgrade(orders);
+        return new OrderPageDTO(orders.stream().map(this::toDTO).collect(Collectors.toList()), nextCursor);
     }
 
     @Override
-    public Optional<OrderDTO> updateOrder(String id, OrderDTO orderDTO) {
-        return orderRepository.findById(id)
-                .map(existing -> {
-                    existing.setUserId(orderDTO.getUserId());
-                    existing.setProductIds(orderDTO.getProductIds());
-                    existing.setTotalAmount(orderDTO.getTotalPrice());
-                    
-                    Order updated = orderRepository.save(existing);
-                    return new OrderDTO(updated.getId(), updated.getUserId(), updated.getProductIds(), updated.getTotalAmount());
-                });
+    public List<OrderDTO> getAllOrders() {
+        List<Order> orders = orderRepository.findAll();
+        orderItemMigration.upgrade(orders);
+        return orders.stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList());
     }
 
     @Override
     public void deleteOrder(String id) {
-        orderRepository.deleteById(id);
+        if (outbox == null) {
+            // Removed atomically so that concurrent deletes subtract it from the rollups once
+            Order removed = mongoTemplate.findAndRemove(Query.query(Criteria.where("id").is(id)), Order.class);
+            if (removed != null) {
+                updateRollups(OrderRollups.Share.of(removed), null);
+            }
+            return;
+        }
+        outbox.inTransaction(() -> {
+            Order removed = mongoTemplate.findAndRemove(Query.query(Criteria.where("id").is(id)), Order.class);
+            if (removed != null) {
+                outbox.append(List.of(outbox.event(OrderEvent.ORDER_DELETED, id, null)));
+                orderRollups.apply(OrderRollups.Share.of(removed), null);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Inserts a new order, through the group-commit buffer when it is
+     * enabled so that concurrent inserts share one bulk write.
+     */
+    private Order insert(Order order) {
+        if (groupCommit == null) {
+            return save(order, OrderEvent.ORDER_CREATED, null);
+        }
+        order.setId(new ObjectId().toHexString());
+        order.setUpdatedAt(Instant.now());
+        return groupCommit.insert(order,
+                outbox == null ? null : outbox.event(OrderEvent.ORDER_CREATED, order.getId(), toDTO(order)));
+    }
+
+    /**
+     * Saves the order and moves its share of the rollups. When the outbox is
+     * enabled, all of it and the change event happen in one transaction.
+     *
+     * @param before the order's rollup share before this write, null for a new order
+     */
+    private Order save(Order order, String eventType, OrderRollups.Share before) {
+        order.setUpdatedAt(Instant.now());
+        if (outbox == null) {
+            Order saved = orderRepository.save(order);
+            updateRollups(before, OrderRollups.Share.of(saved));
+            return saved;
+        }
+        return outbox.inTransaction(() -> {
+            Order saved = orderRepository.save(order);
+            outbox.append(List.of(outbox.event(eventType, saved.getId(), toDTO(saved))));
+            orderRollups.apply(before, OrderRollups.Share.of(saved));
+            return saved;
+        });
+    }
+
+    private void updateRollups(OrderRollups.Share before, OrderRollups.Share after) {
+        try {
+            orderRollups.apply(before, after);
+        } catch (RuntimeException e) {
+            // The order itself is saved; a rollup rebuild repairs the counts
+            log.warn("Could not update order rollups", e);
+        }
+    }
+
+    /**
+     * Copies the lines a client sent. Items win over bare product IDs; an
+     * order given only product IDs gets its items on first read.
+     */
+    private static void setLines(Order order, OrderDTO orderDTO) {
+        if (orderDTO.getItems() == null) {
+            order.setProductIds(orderDTO.getProductIds());
+            order.setItems(null);
+            return;
+        }
+        List<OrderItem> items = new ArrayList<>(orderDTO.getItems().size());
+        List<String> productIds = new ArrayList<>();
+        for (OrderItemDTO item : orderDTO.getItems()) {
+            if (item.getProductId() == null || item.getProductId().isBlank()
+                    || item.getQuantity() <= 0 || item.getQuantity() > MAX_ITEM_QUANTITY) {
+                throw new IllegalArgumentException("Each item needs a productId and a quantity from 1 to " + MAX_ITEM_QUANTITY);
+            }
+            items.add(new OrderItem(item.getProductId(), item.getName(), item.getQuantity(), item.getUnitPrice()));
+            for (int i = 0; i < item.getQuantity(); i++) {
+                productIds.add(item.getProductId());
+            }
+        }
+        order.setItems(items);
+        order.setProductIds(productIds);
+    }
+
+    /**
+     * The sum of the item prices, or for an order without items the total the client gave
+     */
+    private static double total(Order order, OrderDTO orderDTO) {
+        if (order.getItems() == null) {
+            if (orderDTO.getTotalPrice() == null) {
+                throw new IllegalArgumentException("totalPrice is required for an order without items");
+            }
+            return orderDTO.getTotalPrice();
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderItem item : order.getItems()) {
+            if (item.getUnitPrice() == null) {
+                throw new IllegalArgumentException("Missing unitPrice for product " + item.getProductId());
+            }
+            total = total.add(item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+        return total.doubleValue();
+    }
+
+    private OrderDTO toDTO(Order order) {
+        OrderDTO dto = new OrderDTO(
+                order.getId(),
+                order.getUserId(),
+                order.getProductIds(),
+                order.getTotalAmount()
+        );
+        if (order.getItems() != null) {
+            dto.setItems(order.getItems().stream()
+                    .map(item -> new OrderItemDTO(item.getProductId(), item.getName(), item.getQuantity(), item.getUnitPrice()))
+                    .collect(Collectors.toList()));
+        }
+        dto.setStatus(order.getStatus());
+        dto.setCreatedAt(order.getCreatedAt());
+        return dto;
     }
 }
@@ -0,0 +1,14 @@
+package com.velixa.product.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables the in-process product cache. Size, TTL and stats recording come
+ * from {@code spring.cache.caffeine.spec}; hit/miss/eviction counters are
+ * published under the {@code cache.*} actuator metrics.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+}
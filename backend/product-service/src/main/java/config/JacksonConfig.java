@@ -0,0 +1,21 @@
+package com.velixa.product.config;
+
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * {@code ProductDTO} carries a named property filter for sparse
+     * fieldsets. Responses that do not select fields serialize it unfiltered
+     * instead of failing on the unregistered filter id.
+     */
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer unfilteredByDefault() {
+        return builder -> builder.filters(new SimpleFilterProvider().setFailOnUnknownId(false));
+    }
+}
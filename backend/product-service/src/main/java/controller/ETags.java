@@ -0,0 +1,52 @@
+package com.velixa.product.controller;
+
+import java.util.Collection;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/**
+ * Strong entity tags derived from the document {@code @Version}. Sparse
+ * fieldset responses are a different representation, so the selected
+ * fields are folded into their tag.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(Long version, Collection<String> fields) {
+        String tag = String.valueOf(version);
+        if (fields != null) {
+            tag += ";" + String.join(",", fields);
+        }
+        return "\"" + tag + "\"";
+    }
+
+    /**
+     * Extracts the version an {@code If-Match} header refers to.
+     *
+     * @return the version, or null when the header is absent or {@code *}
+     * @throws IllegalArgumentException if the tag is not one we issued
+     * @throws OptimisticLockingFailureException if the tag is weak
+     */
+    static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            // If-Match uses strong comparison, which a weak tag never passes
+            throw new OptimisticLockingFailureException("If-Match does not accept weak entity tags: " + ifMatch);
+        }
+        tag = tag.replace("\"", "");
+        int fieldsStart = tag.indexOf(';');
+        if (fieldsStart >= 0) {
+            tag = tag.substring(0, fieldsStart);
+        }
+        try {
+            return Long.valueOf(tag);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unrecognised If-Match value: " + ifMatch);
+        }
+    }
+}
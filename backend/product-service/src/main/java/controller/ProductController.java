@@ -1,10 +1,19 @@
 package com.velixa.product.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,9 +21,24 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.velixa.product.dto.ProductBatchRequest;
+import com.velixa.product.dto.ProductBatchResponse;
 import com.velixa.product.dto.ProductDTO;
+import com.velixa.product.dto.ProductFields;
+import com.velixa.product.dto.ProductImportReport;
+import com.velixa.product.dto.ProductPageDTO;
+import com.velixa.product.dto.ProductSearchResultDTO;
+import com.velixa.product.service.ProductImportFormat;
+import com.velixa.product.service.ProductImportService;
 import com.velixa.product.service.ProductService;
 
 import lombok.RequiredArgsConstructor;
@@ -27,27 +51,90 @@ public class ProductController {
 	@Autowired
 	private ProductService productService;
 
+	@Autowired
+	private ProductImportService productImportService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
     @PostMapping
     public ResponseEntity<ProductDTO> createProduct(@RequestBody ProductDTO productDTO) {
         return new ResponseEntity<>(productService.createProduct(productDTO), HttpStatus.CREATED);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ProductDTO> getProduct(@PathVariable String id) {
+    public ResponseEntity<MappingJacksonValue> getProduct(@PathVariable String id,
+            @RequestParam(required = false) String fields) {
+        Set<String> selectedFields = ProductFields.parse(fields);
+        // The DTO comes from the product cache; a matching If-None-Match turns this into a 304 before serialization
         return productService.getProductById(id)
-                .map(ResponseEntity::ok)
+                .map(product -> ResponseEntity.ok()
+                        .eTag(ETags.of(product.getVersion(), selectedFields))
+                        .body(selectFields(product, selectedFields)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ProductImportReport> importNdjson(InputStream body) throws IOException {
+        return ResponseEntity.ok(productImportService.importProducts(body, ProductImportFormat.NDJSON));
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<ProductImportReport> importCsv(InputStream body) throws IOException {
+        return ResponseEntity.ok(productImportService.importProducts(body, ProductImportFormat.CSV));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<ProductBatchResponse> getProductsByIds(@RequestBody ProductBatchRequest request) {
+        return ResponseEntity.ok(productService.getProductsByIds(request.getIds()));
+    }
+
     @GetMapping
-    public ResponseEntity<List<ProductDTO>> getAllProducts() {
-        return ResponseEntity.ok(productService.getAllProducts());
+    public ResponseEntity<MappingJacksonValue> getAllProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(required = false) String fields) {
+        Set<String> selectedFields = ProductFields.parse(fields);
+        ProductPageDTO page = productService.getProductPage(cursor, limit, minPrice, maxPrice, sort, selectedFields);
+        return ResponseEntity.ok(selectFields(page, selectedFields));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<ProductSearchResultDTO>> searchProducts(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(productService.searchProducts(query, limit));
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllProducts() {
+        // Writes each product to the socket as it comes off the Mongo cursor
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<ProductDTO> products = productService.streamAllProducts();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                Iterator<ProductDTO> iterator = products.iterator();
+                while (iterator.hasNext()) {
+                    generator.writeObject(iterator.next());
+                }
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<ProductDTO> updateProduct(@PathVariable String id, @RequestBody ProductDTO productDTO) {
-        return productService.updateProduct(id, productDTO)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<ProductDTO> updateProduct(@PathVariable String id, @RequestBody ProductDTO productDTO,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return productService.updateProduct(id, productDTO, ETags.parseIfMatch(ifMatch))
+                .map(updated -> ResponseEntity.ok()
+                        .eTag(ETags.of(updated.getVersion(), null))
+                        .body(updated))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -56,4 +143,13 @@ public class ProductController {
         productService.deleteProduct(id);
         return ResponseEntity.noContent().build();
     }
+
+    private MappingJacksonValue selectFields(Object body, Set<String> fields) {
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        if (fields != null) {
+            value.setFilters(new SimpleFilterProvider()
+                    .addFilter(ProductFields.FILTER_ID, SimpleBeanPropertyFilter.filterOutAllExcept(fields)));
+        }
+        return value;
+    }
 }
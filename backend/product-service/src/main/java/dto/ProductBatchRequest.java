@@ -0,0 +1,14 @@
+package com.velixa.product.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBatchRequest {
+    private List<String> ids;
+}
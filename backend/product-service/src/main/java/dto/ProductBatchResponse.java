@@ -0,0 +1,20 @@
+package com.velixa.product.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of a multi-get. {@code products} follows the order of the requested
+ * ids (duplicates collapsed); ids with no matching product are listed in
+ * {@code missingIds}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBatchResponse {
+    private List<ProductDTO> products;
+    private List<String> missingIds;
+}
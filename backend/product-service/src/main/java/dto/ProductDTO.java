@@ -4,7 +4,10 @@ import lombok.*;
 
 import java.math.BigDecimal;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+
 @Data
+@JsonFilter(ProductFields.FILTER_ID)
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
@@ -14,6 +17,7 @@ public class ProductDTO {
     private String description;
     private BigDecimal price;
     private int quantity;
+    private Long version;
     
     
 	public ProductDTO(String id, String name, String description, BigDecimal price, int quantity) {
@@ -54,10 +58,16 @@ public class ProductDTO {
 	public void setQuantity(int quantity) {
 		this.quantity = quantity;
 	}
+	public Long getVersion() {
+		return version;
+	}
+	public void setVersion(Long version) {
+		this.version = version;
+	}
 	@Override
 	public String toString() {
 		return "ProductDTO [id=" + id + ", name=" + name + ", description=" + description + ", price=" + price
-				+ ", quantity=" + quantity + "]";
+				+ ", quantity=" + quantity + ", version=" + version + "]";
 	}
     
 }
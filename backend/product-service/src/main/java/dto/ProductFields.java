@@ -0,0 +1,43 @@
+package com.velixa.product.dto;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Parses the {@code fields=} sparse fieldset parameter of the product
+ * endpoints. The selected names double as the Mongo projection and as the
+ * Jackson property filter applied to {@link ProductDTO}.
+ */
+public final class ProductFields {
+
+    public static final String FILTER_ID = "productFields";
+
+    private static final Set<String> SUPPORTED = Set.of("id", "name", "description", "price", "quantity", "version");
+
+    private ProductFields() {
+    }
+
+    /**
+     * @param fields comma-separated field names, may be null or blank
+     * @return the selected fields, always including {@code id}, or null when
+     *         no selection was requested
+     */
+    public static Set<String> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add("id");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!SUPPORTED.contains(name)) {
+                throw new IllegalArgumentException("Unknown product field: " + name);
+            }
+            selected.add(name);
+        }
+        return selected;
+    }
+}
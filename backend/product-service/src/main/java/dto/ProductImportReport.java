@@ -0,0 +1,24 @@
+package com.velixa.product.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a bulk import. {@code errors} is capped; {@code errorsTruncated}
+ * is set when more lines failed than were reported.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportReport {
+    private long received;
+    private long imported;
+    private long failed;
+    private List<ProductImportError> errors;
+    private boolean errorsTruncated;
+    private long durationMillis;
+    private double productsPerSecond;
+}
@@ -0,0 +1,19 @@
+package com.velixa.product.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of a keyset-paginated product listing. {@code nextCursor} is an
+ * opaque token to pass back as {@code cursor}; it is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPageDTO {
+    private List<ProductDTO> items;
+    private String nextCursor;
+}
@@ -0,0 +1,17 @@
+package com.velixa.product.dto;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchResultDTO {
+    private String id;
+    private String name;
+    private BigDecimal price;
+    private float score;
+}
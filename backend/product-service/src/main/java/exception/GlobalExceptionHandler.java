@@ -0,0 +1,37 @@
+package com.velixa.product.exception;
+
+import java.time.LocalDateTime;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+	@ExceptionHandler(IllegalArgumentException.class)
+	public ResponseEntity<ErrorResponse> handleBadRequest(IllegalArgumentException ex) {
+	    ErrorResponse error = new ErrorResponse(
+	            "FAILED",
+	            HttpStatus.BAD_REQUEST.value(),
+	            ex.getMessage(),
+	            LocalDateTime.now()
+	    );
+	    return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+	}
+
+
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	public ResponseEntity<ErrorResponse> handleVersionConflict(OptimisticLockingFailureException ex) {
+	    ErrorResponse error = new ErrorResponse(
+	            "FAILED",
+	            HttpStatus.PRECONDITION_FAILED.value(),
+	            ex.getMessage(),
+	            LocalDateTime.now()
+	    );
+	    return new ResponseEntity<>(error, HttpStatus.PRECONDITION_FAILED);
+	}
+
+}
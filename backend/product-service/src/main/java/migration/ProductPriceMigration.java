@@ -0,0 +1,44 @@
+package com.velixa.product.migration;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.client.result.UpdateResult;
+import com.velixa.product.model.Product;
+
+/**
+ * Converts prices written by the default BigDecimal mapping (strings) to
+ * Decimal128 in place, with a single server-side pipeline update. Safe to run
+ * on every start: once migrated, nothing matches the filter.
+ */
+@Component
+@ConditionalOnProperty(name = "product.migration.decimal128-price.enabled", havingValue = "true", matchIfMissing = true)
+public class ProductPriceMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductPriceMigration.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Document stringPrice = new Document("price", new Document("$type", "string"));
+        List<Document> toDecimal = List.of(
+                new Document("$set", new Document("price", new Document("$toDecimal", "$price"))));
+
+        UpdateResult result = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Product.class))
+                .updateMany(stringPrice, toDecimal);
+        if (result.getModifiedCount() > 0) {
+            log.info("Converted {} product prices to Decimal128", result.getModifiedCount());
+        }
+    }
+}
@@ -3,7 +3,11 @@ package com.velixa.product.model;
 import java.math.BigDecimal;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -11,6 +15,7 @@ import lombok.NoArgsConstructor;
 
 @Data
 @Document(collection = "products")
+@CompoundIndex(name = "price_id", def = "{'price': 1, '_id': 1}")
 @NoArgsConstructor
 @AllArgsConstructor
 public class Product {
@@ -20,8 +25,15 @@ public class Product {
 
     private String name;
     private String description;
+
+    // Stored as Decimal128 so range filters and sorting compare numerically and can use the index
+    @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal price;
+
     private int quantity;
+
+    @Version
+    private Long version;
     
     
 	public String getId() {
@@ -54,10 +66,16 @@ public class Product {
 	public void setQuantity(int quantity) {
 		this.quantity = quantity;
 	}
+	public Long getVersion() {
+		return version;
+	}
+	public void setVersion(Long version) {
+		this.version = version;
+	}
 	@Override
 	public String toString() {
 		return "Product [id=" + id + ", name=" + name + ", description=" + description + ", price=" + price
-				+ ", quantity=" + quantity + "]";
+				+ ", quantity=" + quantity + ", version=" + version + "]";
 	}
     
 }
@@ -0,0 +1,25 @@
+package com.velixa.product.repository;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Filter, ordering and keyset position for one page of the product listing.
+ * {@code afterId}/{@code afterPrice} identify the last product of the previous
+ * page; both are null for the first page. {@code fields} limits the
+ * returned document to a projection, or is null for whole documents.
+ */
+@Getter
+@Builder
+public class ProductPageQuery {
+    private final BigDecimal minPrice;
+    private final BigDecimal maxPrice;
+    private final boolean sortByPrice;
+    private final String afterId;
+    private final BigDecimal afterPrice;
+    private final int limit;
+    private final Set<String> fields;
+}
@@ -1,7 +1,14 @@
 package com.velixa.product.repository;
 
+import java.util.stream.Stream;
+
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 import com.velixa.product.model.Product;
 
-public interface ProductRepository extends MongoRepository<Product, String> {}
+public interface ProductRepository extends MongoRepository<Product, String>, ProductRepositoryCustom {
+
+    @Meta(cursorBatchSize = 500)
+    Stream<Product> streamAllByOrderByIdAsc();
+}
@@ -0,0 +1,15 @@
+package com.velixa.product.repository;
+
+import java.util.List;
+
+import com.velixa.product.model.Product;
+
+public interface ProductRepositoryCustom {
+
+    /**
+     * Reads one page of products, ordered by {@code _id} or by
+     * {@code (price, _id)}, resuming strictly after the keyset position in
+     * the query. Served by the {@code _id} and {@code price_id} indexes.
+     */
+    List<Product> findPage(ProductPageQuery pageQuery);
+}
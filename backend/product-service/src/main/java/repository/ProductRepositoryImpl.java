@@ -0,0 +1,77 @@
+package com.velixa.product.repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.types.Decimal128;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.velixa.product.model.Product;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public List<Product> findPage(ProductPageQuery pageQuery) {
+        List<Criteria> criteria = new ArrayList<>();
+
+        if (pageQuery.getMinPrice() != null || pageQuery.getMaxPrice() != null) {
+            Criteria price = Criteria.where("price");
+            if (pageQuery.getMinPrice() != null) {
+                price.gte(decimal(pageQuery.getMinPrice()));
+            }
+            if (pageQuery.getMaxPrice() != null) {
+                price.lte(decimal(pageQuery.getMaxPrice()));
+            }
+            criteria.add(price);
+        }
+
+        if (pageQuery.getAfterId() != null) {
+            criteria.add(pageQuery.isSortByPrice()
+                    ? afterPriceAndId(pageQuery)
+                    : Criteria.where("id").gt(pageQuery.getAfterId()));
+        }
+
+        Query query = criteria.isEmpty()
+                ? new Query()
+                : new Query(new Criteria().andOperator(criteria));
+        query.with(pageQuery.isSortByPrice() ? Sort.by("price", "id") : Sort.by("id"))
+                .limit(pageQuery.getLimit());
+        if (pageQuery.getFields() != null) {
+            pageQuery.getFields().forEach(query.fields()::include);
+            // The next cursor is built from the sort key, so it must come back even if not selected
+            if (pageQuery.isSortByPrice()) {
+                query.fields().include("price");
+            }
+        }
+        return mongoTemplate.find(query, Product.class);
+    }
+
+    private Criteria afterPriceAndId(ProductPageQuery pageQuery) {
+        // Products without a price sort first; once past them, every priced product follows
+        if (pageQuery.getAfterPrice() == null) {
+            return new Criteria().orOperator(
+                    Criteria.where("price").ne(null),
+                    new Criteria().andOperator(
+                            Criteria.where("price").is(null),
+                            Criteria.where("id").gt(pageQuery.getAfterId())));
+        }
+        return new Criteria().orOperator(
+                Criteria.where("price").gt(decimal(pageQuery.getAfterPrice())),
+                new Criteria().andOperator(
+                        Criteria.where("price").is(decimal(pageQuery.getAfterPrice())),
+                        Criteria.where("id").gt(pageQuery.getAfterId())));
+    }
+
+    // Converted explicitly: the mapper does not apply the DECIMAL128 target type to every operator form
+    private static Decimal128 decimal(BigDecimal value) {
+        return new Decimal128(value);
+    }
+}
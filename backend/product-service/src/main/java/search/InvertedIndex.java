@@ -0,0 +1,307 @@
+package com.velixa.product.search;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import com.velixa.product.dto.ProductSearchResultDTO;
+
+/**
+ * Term dictionary plus postings over product name and description, ranked
+ * with BM25. Not thread-safe; {@link ProductSearchIndex} guards access.
+ *
+ * Documents get dense int ids so postings are plain int arrays. The
+ * dictionary is sorted, which lets the last query term also match as a
+ * prefix without a separate structure.
+ *
+ * Removing a document only empties its slot; the postings that still hold
+ * its id skip it and drop it once dead entries outnumber live ones, so a
+ * removal costs O(terms) amortized rather than a scan of every posting
+ * list. A doc id is reused only after the last of them has let it go, or
+ * right away if the document had no terms.
+ *
+ * Each product's version is remembered, so an update that arrives after a
+ * newer one, or after the product was deleted, is ignored. A deletion's
+ * tombstone only has to outlast the updates already in flight when it was
+ * applied, so it is pruned after {@code TOMBSTONE_NANOS}; a rebuilt index
+ * starts without the old ones, and deletions replayed onto it get fresh ones.
+ */
+final class InvertedIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    // Name terms count as if they appeared this many times in the text
+    private static final int NAME_BOOST = 3;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final float PREFIX_WEIGHT = 0.5f;
+    private static final long DELETED = Long.MAX_VALUE;
+    private static final long TOMBSTONE_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final ThreadLocal<Accumulator> accumulators = ThreadLocal.withInitial(Accumulator::new);
+    private final TreeMap<String, Postings> dictionary = new TreeMap<>();
+    private final Map<String, Integer> docIdsByProductId = new HashMap<>();
+    // Newest version applied per product, DELETED once removed
+    private final Map<String, Long> versions = new HashMap<>();
+    private final ArrayDeque<Tombstone> tombstones = new ArrayDeque<>();
+    private final ArrayDeque<Integer> freeDocIds = new ArrayDeque<>();
+    private IndexedDocument[] documents = new IndexedDocument[1024];
+    // By doc id: postings still holding the id of a removed document
+    private int[] staleReferences = new int[1024];
+    private int nextDocId;
+    private long totalLength;
+
+    /**
+     * Indexes the product, replacing any older version of it. Does nothing
+     * if this version or a newer one, or the product's deletion, was
+     * already applied.
+     *
+     * @param version the product's version; null sorts before every other
+     */
+    void add(String productId, Long version, String name, String description, BigDecimal price) {
+        pruneTombstones();
+        long applied = versions.getOrDefault(productId, Long.MIN_VALUE);
+        long incoming = version == null ? -1 : version;
+        if (applied >= incoming) {
+            return;
+        }
+        versions.put(productId, incoming);
+        removeDocument(productId);
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = 0;
+        for (String token : Tokenizer.tokenize(name)) {
+            frequencies.merge(token, NAME_BOOST, Integer::sum);
+            length += NAME_BOOST;
+        }
+        for (String token : Tokenizer.tokenize(description)) {
+            frequencies.merge(token, 1, Integer::sum);
+            length++;
+        }
+
+        int docId = allocateDocId();
+        documents[docId] = new IndexedDocument(productId, name, price, length,
+                frequencies.keySet().toArray(new String[0]));
+        docIdsByProductId.put(productId, docId);
+        totalLength += length;
+        frequencies.forEach((term, frequency) ->
+                dictionary.computeIfAbsent(term, t -> new Postings()).add(docId, frequency));
+    }
+
+    /**
+     * Removes the product for good; later {@link #add} calls for it are ignored
+     */
+    void remove(String productId) {
+        pruneTombstones();
+        versions.put(productId, DELETED);
+        tombstones.add(new Tombstone(productId, System.nanoTime() + TOMBSTONE_NANOS));
+        removeDocument(productId);
+    }
+
+    private void pruneTombstones() {
+        long now = System.nanoTime();
+        while (!tombstones.isEmpty() && tombstones.peek().expiresAt - now <= 0) {
+            versions.remove(tombstones.poll().productId, DELETED);
+        }
+    }
+
+    private void removeDocument(String productId) {
+        Integer docId = docIdsByProductId.remove(productId);
+        if (docId == null) {
+            return;
+        }
+        IndexedDocument document = documents[docId];
+        documents[docId] = null;
+        totalLength -= document.length;
+        staleReferences[docId] = document.terms.length;
+        if (document.terms.length == 0) {
+            freeDocIds.push(docId); // no postings hold it
+        }
+        for (String term : document.terms) {
+            Postings postings = dictionary.get(term);
+            postings.live--;
+            if (postings.live == 0) {
+                dictionary.remove(term);
+                for (int i = 0; i < postings.size; i++) {
+                    release(postings.docIds[i]);
+                }
+            } else if (postings.size - postings.live > postings.live) {
+                compact(postings);
+            }
+        }
+    }
+
+    // Drops the entries of removed documents; amortized over the removals that made them dead
+    private void compact(Postings postings) {
+        int kept = 0;
+        for (int i = 0; i < postings.size; i++) {
+            int docId = postings.docIds[i];
+            if (documents[docId] == null) {
+                release(docId);
+            } else {
+                postings.docIds[kept] = docId;
+                postings.frequencies[kept] = postings.frequencies[i];
+                kept++;
+            }
+        }
+        postings.size = kept;
+    }
+
+    private void release(int docId) {
+        if (--staleReferences[docId] == 0) {
+            freeDocIds.push(docId);
+        }
+    }
+
+    int size() {
+        return docIdsByProductId.size();
+    }
+
+    List<ProductSearchResultDTO> search(String query, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(Tokenizer.tokenize(query)));
+        int docCount = docIdsByProductId.size();
+        if (terms.isEmpty() || docCount == 0 || limit <= 0) {
+            return List.of();
+        }
+        float averageLength = Math.max(1f, (float) totalLength / docCount);
+
+        Accumulator accumulator = accumulators.get();
+        accumulator.reset(documents.length);
+        for (int i = 0; i < terms.size(); i++) {
+            String term = terms.get(i);
+            Postings exact = dictionary.get(term);
+            if (exact != null) {
+                accumulate(exact, 1f, docCount, averageLength, accumulator);
+            }
+            // Treat the last term as a prefix so partially typed queries still match
+            if (i == terms.size() - 1) {
+                int expansions = 0;
+                for (Postings postings : dictionary.subMap(term, false, term + Character.MAX_VALUE, false).values()) {
+                    if (expansions++ == MAX_PREFIX_EXPANSIONS) {
+                        break;
+                    }
+                    accumulate(postings, PREFIX_WEIGHT, docCount, averageLength, accumulator);
+                }
+            }
+        }
+
+        // Min-heap of doc ids ordered by score keeps only the best hits
+        float[] scores = accumulator.scores;
+        PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, (left, right) -> Float.compare(scores[left], scores[right]));
+        for (int i = 0; i < accumulator.touchedCount; i++) {
+            top.offer(accumulator.touched[i]);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        ProductSearchResultDTO[] results = new ProductSearchResultDTO[top.size()];
+        for (int i = results.length - 1; i >= 0; i--) {
+            int docId = top.poll();
+            IndexedDocument document = documents[docId];
+            results[i] = new ProductSearchResultDTO(document.productId, document.name, document.price, scores[docId]);
+        }
+        return Arrays.asList(results);
+    }
+
+    private void accumulate(Postings postings, float weight, int docCount, float averageLength, Accumulator accumulator) {
+        float idf = (float) Math.log(1 + (docCount - postings.live + 0.5) / (postings.live + 0.5));
+        for (int i = 0; i < postings.size; i++) {
+            int docId = postings.docIds[i];
+            IndexedDocument document = documents[docId];
+            if (document == null) {
+                continue; // removed, not yet compacted away
+            }
+            int frequency = postings.frequencies[i];
+            float norm = K1 * (1 - B + B * document.length / averageLength);
+            float score = weight * idf * frequency * (K1 + 1) / (frequency + norm);
+            accumulator.add(docId, score);
+        }
+    }
+
+    private int allocateDocId() {
+        if (!freeDocIds.isEmpty()) {
+            return freeDocIds.pop();
+        }
+        if (nextDocId == documents.length) {
+            documents = Arrays.copyOf(documents, documents.length * 2);
+            staleReferences = Arrays.copyOf(staleReferences, documents.length);
+        }
+        return nextDocId++;
+    }
+
+    private record Tombstone(String productId, long expiresAt) {
+    }
+
+    private static final class IndexedDocument {
+        private final String productId;
+        private final String name;
+        private final BigDecimal price;
+        private final int length;
+        private final String[] terms;
+
+        private IndexedDocument(String productId, String name, BigDecimal price, int length, String[] terms) {
+            this.productId = productId;
+            this.name = name;
+            this.price = price;
+            this.length = length;
+            this.terms = terms;
+        }
+    }
+
+    /**
+     * Per-thread score buffer indexed by doc id. Only the touched slots are
+     * cleared between queries, so a query costs O(matching postings) rather
+     * than O(catalog size).
+     */
+    private static final class Accumulator {
+        private float[] scores = new float[0];
+        private int[] touched = new int[16];
+        private int touchedCount;
+
+        private void reset(int capacity) {
+            for (int i = 0; i < touchedCount; i++) {
+                scores[touched[i]] = 0f;
+            }
+            touchedCount = 0;
+            if (scores.length < capacity) {
+                scores = new float[capacity];
+            }
+        }
+
+        private void add(int docId, float score) {
+            if (scores[docId] == 0f) {
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                }
+                touched[touchedCount++] = docId;
+            }
+            scores[docId] += score;
+        }
+    }
+
+    private static final class Postings {
+        private int[] docIds = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+        private int live; // entries whose document is still indexed
+
+        private void add(int docId, int frequency) {
+            if (size == docIds.length) {
+                docIds = Arrays.copyOf(docIds, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docIds[size] = docId;
+            frequencies[size] = frequency;
+            size++;
+            live++;
+        }
+    }
+}
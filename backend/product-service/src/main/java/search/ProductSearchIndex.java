@@ -0,0 +1,99 @@
+package com.velixa.product.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.velixa.product.dto.ProductSearchResultDTO;
+import com.velixa.product.model.Product;
+import com.velixa.product.repository.ProductRepository;
+
+/**
+ * In-memory full-text index over the product catalog. Rebuilt from Mongo once
+ * the application is ready and kept current by {@code ProductServiceImpl} on
+ * every create, update and delete. Updates carry the product's version, so
+ * when two writes to the same product race to the index the older one is
+ * dropped, including updates replayed onto a rebuilt index.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private InvertedIndex index = new InvertedIndex();
+    // Non-null while a rebuild runs; writes are recorded here and replayed on the new index
+    private List<Consumer<InvertedIndex>> pendingUpdates;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        withWriteLock(() -> pendingUpdates = new ArrayList<>());
+
+        InvertedIndex rebuilt = new InvertedIndex();
+        try (Stream<Product> products = productRepository.streamAllByOrderByIdAsc()) {
+            products.forEach(product -> addTo(rebuilt, product));
+        } catch (RuntimeException e) {
+            withWriteLock(() -> pendingUpdates = null);
+            throw e;
+        }
+
+        withWriteLock(() -> {
+            pendingUpdates.forEach(update -> update.accept(rebuilt));
+            pendingUpdates = null;
+            index = rebuilt;
+        });
+        log.info("Indexed {} products for search in {} ms", rebuilt.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public void index(Product product) {
+        apply(target -> addTo(target, product));
+    }
+
+    public void remove(String productId) {
+        apply(target -> target.remove(productId));
+    }
+
+    public List<ProductSearchResultDTO> search(String query, int limit) {
+        lock.readLock().lock();
+        try {
+            return index.search(query, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Consumer<InvertedIndex> update) {
+        withWriteLock(() -> {
+            update.accept(index);
+            if (pendingUpdates != null) {
+                pendingUpdates.add(update);
+            }
+        });
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void addTo(InvertedIndex target, Product product) {
+        target.add(product.getId(), product.getVersion(), product.getName(), product.getDescription(), product.getPrice());
+    }
+}
@@ -0,0 +1,77 @@
+package com.velixa.product.service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.bson.types.ObjectId;
+
+/**
+ * Continuation token for keyset pagination over the products collection.
+ * Clients treat it as opaque; internally it is the last {@code _id} of the
+ * previous page, plus its price when the listing is sorted by price,
+ * base64url-encoded.
+ */
+final class ProductCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final String lastId;
+    private final boolean byPrice;
+    private final BigDecimal lastPrice;
+
+    private ProductCursor(String lastId, boolean byPrice, BigDecimal lastPrice) {
+        this.lastId = lastId;
+        this.byPrice = byPrice;
+        this.lastPrice = lastPrice;
+    }
+
+    static ProductCursor afterId(String lastId) {
+        return new ProductCursor(lastId, false, null);
+    }
+
+    static ProductCursor afterPrice(String lastId, BigDecimal lastPrice) {
+        return new ProductCursor(lastId, true, lastPrice);
+    }
+
+    String getLastId() {
+        return lastId;
+    }
+
+    boolean isByPrice() {
+        return byPrice;
+    }
+
+    BigDecimal getLastPrice() {
+        return lastPrice;
+    }
+
+    String encode() {
+        String raw = byPrice
+                ? lastId + SEPARATOR + (lastPrice == null ? "" : lastPrice.toPlainString())
+                : lastId;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static ProductCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            String lastId = separator < 0 ? raw : raw.substring(0, separator);
+            if (!ObjectId.isValid(lastId)) {
+                throw new IllegalArgumentException();
+            }
+            if (separator < 0) {
+                return afterId(lastId);
+            }
+            String price = raw.substring(separator + 1);
+            return afterPrice(lastId, price.isEmpty() ? null : new BigDecimal(price));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+}
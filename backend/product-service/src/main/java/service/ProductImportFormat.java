@@ -0,0 +1,8 @@
+package com.velixa.product.service;
+
+public enum ProductImportFormat {
+    /** One ProductDTO JSON object per line. */
+    NDJSON,
+    /** Header row naming the columns (name, description, price, quantity), then one product per line. */
+    CSV
+}
@@ -0,0 +1,10 @@
+package com.velixa.product.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.velixa.product.dto.ProductImportReport;
+
+public interface ProductImportService {
+    ProductImportReport importProducts(InputStream body, ProductImportFormat format) throws IOException;
+}
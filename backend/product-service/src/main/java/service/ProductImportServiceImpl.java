@@ -0,0 +1,235 @@
+package com.velixa.product.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.velixa.product.dto.ProductDTO;
+import com.velixa.product.dto.ProductImportError;
+import com.velixa.product.dto.ProductImportReport;
+import com.velixa.product.model.Product;
+import com.velixa.product.search.ProductSearchIndex;
+
+/**
+ * Reads the request body line by line and writes products in unordered bulk
+ * inserts of {@code product.import.batch-size}. Memory stays bounded by one
+ * batch plus the capped error list, whatever the size of the upload.
+ */
+@Service
+public class ProductImportServiceImpl implements ProductImportService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${product.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${product.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    @Override
+    public ProductImportReport importProducts(InputStream body, ProductImportFormat format) throws IOException {
+        long start = System.nanoTime();
+        ImportRun run = new ImportRun();
+        List<Product> batch = new ArrayList<>(batchSize);
+        List<Long> batchLines = new ArrayList<>(batchSize);
+        Map<String, Integer> csvColumns = null;
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == ProductImportFormat.CSV && csvColumns == null) {
+                csvColumns = parseCsvHeader(line);
+                continue;
+            }
+
+            run.received++;
+            try {
+                Product product = format == ProductImportFormat.NDJSON
+                        ? fromJson(line)
+                        : fromCsv(line, csvColumns);
+                // Assigned up front so the search index can be updated without reading ids back
+                product.setId(new ObjectId().toHexString());
+                batch.add(product);
+                batchLines.add(lineNumber);
+            } catch (IllegalArgumentException e) {
+                run.fail(lineNumber, e.getMessage());
+            }
+
+            if (batch.size() == batchSize) {
+                flush(batch, batchLines, run);
+            }
+        }
+        flush(batch, batchLines, run);
+
+        long durationMillis = (System.nanoTime() - start) / 1_000_000;
+        double perSecond = durationMillis == 0 ? run.imported : run.imported * 1000.0 / durationMillis;
+        return new ProductImportReport(run.received, run.imported, run.failed, run.errors,
+                run.failed > run.errors.size(), durationMillis, perSecond);
+    }
+
+    private void flush(List<Product> batch, List<Long> batchLines, ImportRun run) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Set<Integer> rejected = new HashSet<>();
+        try {
+            run.imported += mongoTemplate.bulkOps(BulkMode.UNORDERED, Product.class)
+                    .insert(batch)
+                    .execute()
+                    .getInsertedCount();
+        } catch (BulkOperationException e) {
+            // Unordered: every document without an error was still written
+            run.imported += e.getResult().getInsertedCount();
+            for (BulkWriteError error : e.getErrors()) {
+                rejected.add(error.getIndex());
+                run.fail(batchLines.get(error.getIndex()), error.getMessage());
+            }
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            if (!rejected.contains(i)) {
+                productSearchIndex.index(batch.get(i));
+            }
+        }
+        batch.clear();
+        batchLines.clear();
+    }
+
+    private Product fromJson(String line) {
+        ProductDTO dto;
+        try {
+            dto = objectMapper.readValue(line, ProductDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+        }
+        return toProduct(dto.getName(), dto.getDescription(), dto.getPrice(), dto.getQuantity());
+    }
+
+    private Product fromCsv(String line, Map<String, Integer> columns) {
+        List<String> values = splitCsvLine(line);
+        try {
+            String quantity = column(values, columns, "quantity");
+            String price = column(values, columns, "price");
+            return toProduct(
+                    column(values, columns, "name"),
+                    column(values, columns, "description"),
+                    price == null || price.isBlank() ? null : new BigDecimal(price.trim()),
+                    quantity == null || quantity.isBlank() ? 0 : Integer.parseInt(quantity.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in row: " + line);
+        }
+    }
+
+    private Product toProduct(String name, String description, BigDecimal price, int quantity) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("name is required");
+        }
+        if (price == null || price.signum() < 0) {
+            throw new IllegalArgumentException("price is required and must not be negative");
+        }
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription(description);
+        product.setPrice(price);
+        product.setQuantity(quantity);
+        // Bulk inserts bypass the template's version initialisation
+        product.setVersion(0L);
+        return product;
+    }
+
+    private Map<String, Integer> parseCsvHeader(String line) {
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsvLine(line);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("name") || !columns.containsKey("price")) {
+            throw new IllegalArgumentException("CSV header must contain name and price columns");
+        }
+        return columns;
+    }
+
+    private static String column(List<String> values, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index == null || index >= values.size() ? null : values.get(index);
+    }
+
+    /**
+     * Splits one CSV record, honouring double-quoted fields and doubled
+     * quotes inside them. Quoted fields spanning several lines are not
+     * supported.
+     */
+    private static List<String> splitCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private class ImportRun {
+        private long received;
+        private long imported;
+        private long failed;
+        private final List<ProductImportError> errors = new ArrayList<>();
+
+        private void fail(long line, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ProductImportError(line, message));
+            }
+        }
+    }
+}
@@ -1,14 +1,23 @@
 package com.velixa.product.service;
 
+import com.velixa.product.dto.ProductBatchResponse;
 import com.velixa.product.dto.ProductDTO;
+import com.velixa.product.dto.ProductPageDTO;
+import com.velixa.product.dto.ProductSearchResultDTO;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface ProductService {
     ProductDTO createProduct(ProductDTO productDTO);
     Optional<ProductDTO> getProductById(String id);
-    List<ProductDTO> getAllProducts();
-    Optional<ProductDTO> updateProduct(String id, ProductDTO productDTO);
+    ProductBatchResponse getProductsByIds(List<String> ids);
+    ProductPageDTO getProductPage(String cursor, int limit, BigDecimal minPrice, BigDecimal maxPrice, String sort, Set<String> fields);
+    Stream<ProductDTO> streamAllProducts();
+    List<ProductSearchResultDTO> searchProducts(String query, int limit);
+    Optional<ProductDTO> updateProduct(String id, ProductDTO productDTO, Long expectedVersion);
     void deleteProduct(String id);
 }
@@ -1,15 +1,31 @@
 package com.velixa.product.service;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
+import com.velixa.product.dto.ProductBatchResponse;
 import com.velixa.product.dto.ProductDTO;
+import com.velixa.product.dto.ProductPageDTO;
+import com.velixa.product.dto.ProductSearchResultDTO;
 import com.velixa.product.model.Product;
+import com.velixa.product.repository.ProductPageQuery;
 import com.velixa.product.repository.ProductRepository;
+import com.velixa.product.search.ProductSearchIndex;
 
 import lombok.RequiredArgsConstructor;
 
@@ -20,6 +36,18 @@ public class ProductServiceImpl implements ProductService {
 	@Autowired
 	private ProductRepository productRepository;
 
+	@Autowired
+	private ProductSearchIndex productSearchIndex;
+
+	@Value("${product.listing.max-page-size:200}")
+	private int maxPageSize;
+
+	@Value("${product.batch.max-ids:100}")
+	private int maxBatchIds;
+
+	@Value("${product.search.max-results:100}")
+	private int maxSearchResults;
+
     @Override
     public ProductDTO createProduct(ProductDTO productDTO) {
         Product product = new Product();
@@ -29,37 +57,132 @@ public class ProductServiceImpl implements ProductService {
         product.setQuantity(productDTO.getQuantity());
         
         product = productRepository.save(product);
+        productSearchIndex.index(product);
         productDTO.setId(product.getId());
+        productDTO.setVersion(product.getVersion());
         return productDTO;
     }
 
     @Override
+    @Cacheable(cacheNames = "products", key = "#id", unless = "#result == null")
     public Optional<ProductDTO> getProductById(String id) {
-        return productRepository.findById(id)
-                .map(product -> new ProductDTO(product.getId(), product.getName(), product.getDescription(), product.getPrice(), product.getQuantity()));
+        return productRepository.findById(id).map(this::toDTO);
     }
 
     @Override
-    public List<ProductDTO> getAllProducts() {
-        return productRepository.findAll().stream()
-                .map(product -> new ProductDTO(product.getId(), product.getName(), product.getDescription(), product.getPrice(), product.getQuantity()))
+    public ProductBatchResponse getProductsByIds(List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("At least one product id is required");
+        }
+        Set<String> requested = new LinkedHashSet<>(ids);
+        if (requested.size() > maxBatchIds) {
+            throw new IllegalArgumentException("At most " + maxBatchIds + " product ids can be requested at once");
+        }
+
+        // One $in query for the whole batch, then restore the requested order
+        Map<String, Product> found = productRepository.findAllById(requested).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        List<ProductDTO> products = new ArrayList<>(found.size());
+        List<String> missingIds = new ArrayList<>();
+        for (String id : requested) {
+            Product product = found.get(id);
+            if (product != null) {
+                products.add(toDTO(product));
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new ProductBatchResponse(products, missingIds);
+    }
+
+    @Override
+    public ProductPageDTO getProductPage(String cursor, int limit, BigDecimal minPrice, BigDecimal maxPrice, String sort, Set<String> fields) {
+        boolean sortByPrice = parseSort(sort);
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new IllegalArgumentException("minPrice must not be greater than maxPrice");
+        }
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        ProductCursor after = ProductCursor.decode(cursor);
+        if (after != null && after.isByPrice() != sortByPrice) {
+            throw new IllegalArgumentException("Cursor does not match sort order: " + sort);
+        }
+
+        // Fetch one extra document to know whether another page follows
+        List<Product> products = productRepository.findPage(ProductPageQuery.builder()
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .sortByPrice(sortByPrice)
+                .afterId(after == null ? null : after.getLastId())
+                .afterPrice(after == null ? null : after.getLastPrice())
+                .limit(pageSize + 1)
+                .fields(fields)
+                .build());
+
+        List<ProductDTO> items = products.stream()
+                .limit(pageSize)
+                .map(this::toDTO)
                 .collect(Collectors.toList());
+        String nextCursor = null;
+        if (products.size() > pageSize) {
+            ProductDTO last = items.get(items.size() - 1);
+            nextCursor = (sortByPrice
+                    ? ProductCursor.afterPrice(last.getId(), last.getPrice())
+                    : ProductCursor.afterId(last.getId())).encode();
+        }
+        return new ProductPageDTO(items, nextCursor);
+    }
+
+    @Override
+    public Stream<ProductDTO> streamAllProducts() {
+        // Backed by an open Mongo cursor; the caller must close the stream
+        return productRepository.streamAllByOrderByIdAsc().map(this::toDTO);
     }
 
     @Override
-    public Optional<ProductDTO> updateProduct(String id, ProductDTO productDTO) {
+    public List<ProductSearchResultDTO> searchProducts(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query must not be empty");
+        }
+        return productSearchIndex.search(query, Math.max(1, Math.min(limit, maxSearchResults)));
+    }
+
+    @Override
+    @CacheEvict(cacheNames = "products", key = "#id")
+    public Optional<ProductDTO> updateProduct(String id, ProductDTO productDTO, Long expectedVersion) {
         return productRepository.findById(id).map(existing -> {
+            if (expectedVersion != null && !expectedVersion.equals(existing.getVersion())) {
+                throw new OptimisticLockingFailureException("Product " + id + " has been modified");
+            }
             existing.setName(productDTO.getName());
             existing.setDescription(productDTO.getDescription());
             existing.setPrice(productDTO.getPrice());
             existing.setQuantity(productDTO.getQuantity());
             Product updated = productRepository.save(existing);
-            return new ProductDTO(updated.getId(), updated.getName(), updated.getDescription(), updated.getPrice(), updated.getQuantity());
+            productSearchIndex.index(updated);
+            return toDTO(updated);
         });
     }
 
     @Override
+    @CacheEvict(cacheNames = "products", key = "#id")
     public void deleteProduct(String id) {
         productRepository.deleteById(id);
+        productSearchIndex.remove(id);
+    }
+
+    private boolean parseSort(String sort) {
+        if (sort == null || sort.isBlank() || "id".equals(sort)) {
+            return false;
+        }
+        if ("price".equals(sort)) {
+            return true;
+        }
+        throw new IllegalArgumentException("Unsupported sort: " + sort);
+    }
+
+    private ProductDTO toDTO(Product product) {
+        return new ProductDTO(product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                product.getQuantity(), product.getVersion());
     }
 }
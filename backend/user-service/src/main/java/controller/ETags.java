@@ -0,0 +1,39 @@
+package com.velixa.user.controller;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/**
+ * Strong entity tags derived from the document {@code @Version}.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Extracts the version an {@code If-Match} header refers to.
+     *
+     * @return the version, or null when the header is absent or {@code *}
+     * @throws IllegalArgumentException if the tag is not one we issued
+     * @throws OptimisticLockingFailureException if the tag is weak
+     */
+    static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            // If-Match uses strong comparison, which a weak tag never passes
+            throw new OptimisticLockingFailureException("If-Match does not accept weak entity tags: " + ifMatch);
+        }
+        try {
+            return Long.valueOf(tag.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unrecognised If-Match value: " + ifMatch);
+        }
+    }
+}
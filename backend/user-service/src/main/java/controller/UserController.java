@@ -1,8 +1,10 @@
 package com.velixa.user.controller;
 
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,8 +13,10 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.velixa.user.dto.UserDTO;
 import com.velixa.user.service.UserService;
@@ -33,9 +37,16 @@ public class UserController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<UserDTO> getUser(@PathVariable String id) {
+    public ResponseEntity<UserDTO> getUser(@PathVariable String id, WebRequest request) {
+        // Revalidations only need the version, so answer them before loading the full user
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Long> version = userService.getUserVersion(id);
+            if (version.isPresent() && request.checkNotModified(ETags.of(version.get()))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETags.of(version.get())).build();
+            }
+        }
         return userService.getUserById(id)
-                .map(ResponseEntity::ok)
+                .map(user -> ResponseEntity.ok().eTag(ETags.of(user.getVersion())).body(user))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -45,9 +56,10 @@ public class UserController {
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<UserDTO> updateUser(@PathVariable String id, @RequestBody UserDTO userDTO) {
-        return userService.updateUser(id, userDTO)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<UserDTO> updateUser(@PathVariable String id, @RequestBody UserDTO userDTO,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return userService.updateUser(id, userDTO, ETags.parseIfMatch(ifMatch))
+                .map(user -> ResponseEntity.ok().eTag(ETags.of(user.getVersion())).body(user))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -14,6 +14,7 @@ public class UserDTO {
     private String username;
     private String email;
     private List<String> roles;
+    private Long version;
 	
     
     
@@ -48,5 +49,11 @@ public class UserDTO {
 	public void setRoles(List<String> roles) {
 		this.roles = roles;
 	}
+	public Long getVersion() {
+		return version;
+	}
+	public void setVersion(Long version) {
+		this.version = version;
+	}
     
 }
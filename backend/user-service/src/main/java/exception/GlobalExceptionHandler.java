@@ -2,6 +2,7 @@ package com.velixa.user.exception;
 
 import java.time.LocalDateTime;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -34,6 +35,18 @@ public class GlobalExceptionHandler {
 	}
 
 
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	public ResponseEntity<ErrorResponse> handleVersionConflict(OptimisticLockingFailureException ex) {
+	    ErrorResponse error = new ErrorResponse(
+	            "FAILED",
+	            HttpStatus.PRECONDITION_FAILED.value(),
+	            ex.getMessage(),
+	            LocalDateTime.now()
+	    );
+	    return new ResponseEntity<>(error, HttpStatus.PRECONDITION_FAILED);
+	}
+
+
 //    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
 //    public ResponseEntity<ErrorResponse> handleTypeMismatch(MethodArgumentTypeMismatchException ex) {
 //        ErrorResponse error = new ErrorResponse(
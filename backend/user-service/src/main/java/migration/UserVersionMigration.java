@@ -0,0 +1,40 @@
+package com.velixa.user.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.client.result.UpdateResult;
+import com.velixa.user.model.User;
+
+/**
+ * Seeds {@code version = 0} on users written before {@code @Version} was
+ * introduced. Without it, saving such a document would be treated as an
+ * insert of a new entity and fail on the duplicate {@code _id}.
+ */
+@Component
+public class UserVersionMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(UserVersionMigration.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        UpdateResult result = mongoTemplate.updateMulti(
+                new Query(Criteria.where("version").exists(false)),
+                new Update().set("version", 0L),
+                User.class);
+        if (result.getModifiedCount() > 0) {
+            log.info("Initialised version on {} users", result.getModifiedCount());
+        }
+    }
+}
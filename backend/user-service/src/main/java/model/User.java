@@ -3,6 +3,7 @@ package com.velixa.user.model;
 import java.util.List;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import lombok.AllArgsConstructor;
@@ -25,6 +26,9 @@ public class User {
 
     private List<String> roles;
 
+    @Version
+    private Long version;
+
 	public String getId() {
 		return id;
 	}
@@ -65,10 +69,18 @@ public class User {
 		this.roles = roles;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
 	@Override
 	public String toString() {
 		return "User [id=" + id + ", username=" + username + ", email=" + email + ", password=" + password + ", roles="
-				+ roles + "]";
+				+ roles + ", version=" + version + "]";
 	}
     
 }
@@ -12,4 +12,11 @@ import com.velixa.user.model.User;
 public interface UserRepository extends MongoRepository<User, String> {
     Optional<User> findByEmail(String email);
     Optional<User> findByUsername(String username);
+
+    /** Reads only the version of a user, for answering conditional requests. */
+    Optional<VersionOnly> findVersionById(String id);
+
+    interface VersionOnly {
+        Long getVersion();
+    }
 }
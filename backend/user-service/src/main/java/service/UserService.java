@@ -8,7 +8,8 @@ import com.velixa.user.dto.UserDTO;
 public interface UserService {
     UserDTO createUser(UserDTO userDTO);
     Optional<UserDTO> getUserById(String id);
+    Optional<Long> getUserVersion(String id);
     List<UserDTO> getAllUsers();
     void deleteUser(String id);
-    Optional<UserDTO> updateUser(String id, UserDTO userDTO);
+    Optional<UserDTO> updateUser(String id, UserDTO userDTO, Long expectedVersion);
 }
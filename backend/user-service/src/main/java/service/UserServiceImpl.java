@@ -5,6 +5,7 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
 import com.velixa.user.dto.UserDTO;
@@ -28,30 +29,38 @@ public class UserServiceImpl implements UserService {
         user.setRoles(userDTO.getRoles());
         user = userRepository.save(user);
         userDTO.setId(user.getId());
+        userDTO.setVersion(user.getVersion());
         return userDTO;
     }
 
     @Override
     public Optional<UserDTO> getUserById(String id) {
-        return userRepository.findById(id)
-                .map(user -> new UserDTO(user.getId(), user.getUsername(), user.getEmail(), user.getRoles()));
+        return userRepository.findById(id).map(this::toDTO);
+    }
+
+    @Override
+    public Optional<Long> getUserVersion(String id) {
+        return userRepository.findVersionById(id).map(UserRepository.VersionOnly::getVersion);
     }
 
     @Override
     public List<UserDTO> getAllUsers() {
         return userRepository.findAll().stream()
-                .map(user -> new UserDTO(user.getId(), user.getUsername(), user.getEmail(), user.getRoles()))
+                .map(this::toDTO)
                 .collect(Collectors.toList());
     }
 
     @Override
-    public Optional<UserDTO> updateUser(String id, UserDTO userDTO) {
+    public Optional<UserDTO> updateUser(String id, UserDTO userDTO, Long expectedVersion) {
         return userRepository.findById(id).map(existingUser -> {
+            if (expectedVersion != null && !expectedVersion.equals(existingUser.getVersion())) {
+                throw new OptimisticLockingFailureException("User " + id + " has been modified");
+            }
             existingUser.setUsername(userDTO.getUsername());
             existingUser.setEmail(userDTO.getEmail());
             existingUser.setRoles(userDTO.getRoles());
             User updatedUser = userRepository.save(existingUser);
-            return new UserDTO(updatedUser.getId(), updatedUser.getUsername(), updatedUser.getEmail(), updatedUser.getRoles());
+            return toDTO(updatedUser);
         });
     }
 
@@ -59,5 +68,9 @@ public class UserServiceImpl implements UserService {
     public void deleteUser(String id) {
         userRepository.deleteById(id);
     }
+
+    private UserDTO toDTO(User user) {
+        return new UserDTO(user.getId(), user.getUsername(), user.getEmail(), user.getRoles(), user.getVersion());
+    }
 }
 